@@ -0,0 +1,270 @@
+package Compiler;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+// Exports NFAs and DFAs as Graphviz DOT or as a compact binary adjacency list.
+//
+// States are numbered densely in breadth-first order from the start state (transitions
+// visited in ascending character order), so exports are reproducible. Transitions from
+// one state to the same target on consecutive characters are collapsed into ranges
+// such as a-z. Output is written state by state straight to the stream; only the
+// state numbering is held in memory, so automata with many thousands of states export
+// without building the whole document first.
+//
+// Binary layout: magic "MSAG", format version, kind (0 = NFA, 1 = DFA), state count,
+// start state; then per state an accept flag, its range edges (count, then target,
+// low char, high char each) and its epsilon edges (count, then targets).
+public class AutomatonExporter {
+    private static final int MAGIC = 0x4D53_4147; // "MSAG"
+    private static final int FORMAT_VERSION = 1;
+    private static final int BUFFER_SIZE = 1 << 16;
+    static final int KIND_NFA = 0;
+    static final int KIND_DFA = 1;
+
+    // Adjacency of one automaton, queried state by state.
+    private interface Graph {
+        int size();
+
+        boolean isAccept(int state);
+
+        // Character transitions as target -> sorted distinct characters.
+        SortedMap<Integer, SortedSet<Character>> transitions(int state);
+
+        List<Integer> epsilonTargets(int state);
+    }
+
+    public static void writeDot(NFA nfa, Writer out) throws IOException {
+        writeDot(nfaGraph(nfa), "NFA", out);
+    }
+
+    public static void writeDot(DFA dfa, Writer out) throws IOException {
+        writeDot(dfaGraph(dfa), "DFA", out);
+    }
+
+    public static void writeBinary(NFA nfa, DataOutputStream out) throws IOException {
+        writeBinary(nfaGraph(nfa), KIND_NFA, out);
+    }
+
+    public static void writeBinary(DFA dfa, DataOutputStream out) throws IOException {
+        writeBinary(dfaGraph(dfa), KIND_DFA, out);
+    }
+
+    private static void writeDot(Graph graph, String name, Writer out) throws IOException {
+        out.write("digraph " + name + " {\n");
+        out.write("  rankdir=LR;\n");
+        out.write("  node [shape=circle];\n");
+        out.write("  start [shape=point];\n");
+        out.write("  start -> 0;\n");
+        for (int state = 0; state < graph.size(); state++) {
+            if (graph.isAccept(state)) {
+                out.write("  " + state + " [shape=doublecircle];\n");
+            }
+            for (Map.Entry<Integer, SortedSet<Character>> edge : graph.transitions(state).entrySet()) {
+                StringBuilder label = new StringBuilder();
+                for (char[] range : ranges(edge.getValue())) {
+                    if (label.length() > 0) {
+                        label.append(',');
+                    }
+                    label.append(dotChar(range[0]));
+                    if (range[1] != range[0]) {
+                        label.append('-').append(dotChar(range[1]));
+                    }
+                }
+                out.write("  " + state + " -> " + edge.getKey() + " [label=\"" + label + "\"];\n");
+            }
+            for (int target : graph.epsilonTargets(state)) {
+                out.write("  " + state + " -> " + target + " [label=\"ε\", style=dashed];\n");
+            }
+        }
+        out.write("}\n");
+    }
+
+    private static void writeBinary(Graph graph, int kind, DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeByte(kind);
+        out.writeInt(graph.size());
+        out.writeInt(0);
+        for (int state = 0; state < graph.size(); state++) {
+            out.writeBoolean(graph.isAccept(state));
+            List<int[]> edges = new ArrayList<>();
+            for (Map.Entry<Integer, SortedSet<Character>> edge : graph.transitions(state).entrySet()) {
+                for (char[] range : ranges(edge.getValue())) {
+                    edges.add(new int[] {edge.getKey(), range[0], range[1]});
+                }
+            }
+            out.writeInt(edges.size());
+            for (int[] edge : edges) {
+                out.writeInt(edge[0]);
+                out.writeChar(edge[1]);
+                out.writeChar(edge[2]);
+            }
+            List<Integer> epsilons = graph.epsilonTargets(state);
+            out.writeInt(epsilons.size());
+            for (int target : epsilons) {
+                out.writeInt(target);
+            }
+        }
+    }
+
+    // Splits sorted characters into maximal runs of consecutive characters: {low, high}.
+    static List<char[]> ranges(SortedSet<Character> chars) {
+        List<char[]> ranges = new ArrayList<>();
+        char low = 0;
+        char high = 0;
+        boolean open = false;
+        for (char c : chars) {
+            if (open && c == high + 1) {
+                high = c;
+                continue;
+            }
+            if (open) {
+                ranges.add(new char[] {low, high});
+            }
+            low = c;
+            high = c;
+            open = true;
+        }
+        if (open) {
+            ranges.add(new char[] {low, high});
+        }
+        return ranges;
+    }
+
+    private static String dotChar(char c) {
+        switch (c) {
+            case '\n': return "\\\\n";
+            case '\r': return "\\\\r";
+            case '\t': return "\\\\t";
+            case ' ': return "SP";
+            case '"': return "\\\"";
+            case '\\': return "\\\\";
+            case '-': return "'-'";
+            case ',': return "','";
+            default:
+                return c < 32 || c > 126 ? String.format("\\\\u%04x", (int) c) : String.valueOf(c);
+        }
+    }
+
+    private static Graph nfaGraph(NFA nfa) {
+        // Breadth-first numbering over character and epsilon edges
+        List<NFA.State> states = new ArrayList<>();
+        Map<NFA.State, Integer> ids = new IdentityHashMap<>();
+        states.add(nfa.startState);
+        ids.put(nfa.startState, 0);
+        for (int i = 0; i < states.size(); i++) {
+            NFA.State state = states.get(i);
+            for (Character c : new TreeSet<>(state.transitions.keySet())) {
+                for (NFA.State next : state.transitions.get(c)) {
+                    if (!ids.containsKey(next)) {
+                        ids.put(next, states.size());
+                        states.add(next);
+                    }
+                }
+            }
+            for (NFA.State next : state.epsilonTransitions) {
+                if (!ids.containsKey(next)) {
+                    ids.put(next, states.size());
+                    states.add(next);
+                }
+            }
+        }
+        return new Graph() {
+            public int size() {
+                return states.size();
+            }
+
+            public boolean isAccept(int state) {
+                return states.get(state) == nfa.acceptState;
+            }
+
+            public SortedMap<Integer, SortedSet<Character>> transitions(int state) {
+                SortedMap<Integer, SortedSet<Character>> edges = new TreeMap<>();
+                for (Map.Entry<Character, List<NFA.State>> entry : states.get(state).transitions.entrySet()) {
+                    for (NFA.State next : entry.getValue()) {
+                        edges.computeIfAbsent(ids.get(next), k -> new TreeSet<>()).add(entry.getKey());
+                    }
+                }
+                return edges;
+            }
+
+            public List<Integer> epsilonTargets(int state) {
+                List<Integer> targets = new ArrayList<>();
+                for (NFA.State next : states.get(state).epsilonTransitions) {
+                    targets.add(ids.get(next));
+                }
+                return targets;
+            }
+        };
+    }
+
+    private static Graph dfaGraph(DFA dfa) {
+        List<DFA.DFANode> states = dfa.getStates();
+        Map<DFA.DFANode, Integer> ids = new IdentityHashMap<>();
+        for (DFA.DFANode node : states) {
+            ids.put(node, ids.size());
+        }
+        return new Graph() {
+            public int size() {
+                return states.size();
+            }
+
+            public boolean isAccept(int state) {
+                return states.get(state).isAccept;
+            }
+
+            public SortedMap<Integer, SortedSet<Character>> transitions(int state) {
+                SortedMap<Integer, SortedSet<Character>> edges = new TreeMap<>();
+                for (Map.Entry<Character, DFA.DFANode> entry : states.get(state).transitions.entrySet()) {
+                    edges.computeIfAbsent(ids.get(entry.getValue()), k -> new TreeSet<>()).add(entry.getKey());
+                }
+                return edges;
+            }
+
+            public List<Integer> epsilonTargets(int state) {
+                return Collections.emptyList();
+            }
+        };
+    }
+
+    // Exports the NFA and DFA of every token type into a directory.
+    // Usage: AutomatonExporter [dot|bin] [output-dir]
+    public static void main(String[] args) throws IOException {
+        String format = args.length > 0 ? args[0] : "dot";
+        Path directory = Paths.get(args.length > 1 ? args[1] : "automata");
+        if (!format.equals("dot") && !format.equals("bin")) {
+            System.err.println("Usage: AutomatonExporter [dot|bin] [output-dir]");
+            System.exit(2);
+        }
+        Files.createDirectories(directory);
+        RegexToNFA regexToNFA = new RegexToNFA();
+        for (Map.Entry<TokenType, String> entry : Lexer.TOKEN_REGEXES.entrySet()) {
+            String name = entry.getKey().name().toLowerCase();
+            NFA nfa = regexToNFA.convert(entry.getValue());
+            DFA dfa = new DFA(nfa);
+            if (format.equals("dot")) {
+                try (Writer out = Files.newBufferedWriter(directory.resolve(name + ".nfa.dot"), StandardCharsets.UTF_8)) {
+                    writeDot(nfa, out);
+                }
+                try (Writer out = Files.newBufferedWriter(directory.resolve(name + ".dfa.dot"), StandardCharsets.UTF_8)) {
+                    writeDot(dfa, out);
+                }
+            } else {
+                try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                        Files.newOutputStream(directory.resolve(name + ".nfa.bin")), BUFFER_SIZE))) {
+                    writeBinary(nfa, out);
+                }
+                try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                        Files.newOutputStream(directory.resolve(name + ".dfa.bin")), BUFFER_SIZE))) {
+                    writeBinary(dfa, out);
+                }
+            }
+        }
+        System.out.println("Exported " + Lexer.TOKEN_REGEXES.size() + " token automata to " + directory);
+    }
+}
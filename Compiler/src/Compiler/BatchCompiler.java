@@ -0,0 +1,94 @@
+package Compiler;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.stream.Stream;
+
+// Compiles many .ms files in one JVM, skipping any whose content is already in the
+// CompilationCache. Directories are searched recursively for .ms files.
+// Usage: BatchCompiler [--cache dir] [--cache-size MB] [--stats file] <file-or-directory>...
+public class BatchCompiler {
+
+    public static void main(String[] args) throws IOException {
+        Path cacheDir = null;
+        long cacheBytes = CompilationCache.DEFAULT_MAX_BYTES;
+        Path statsPath = null;
+        List<Path> inputs = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--cache") && i + 1 < args.length) {
+                cacheDir = Paths.get(args[++i]);
+            } else if (args[i].equals("--cache-size") && i + 1 < args.length) {
+                cacheBytes = Long.parseLong(args[++i]) * 1024 * 1024;
+            } else if (args[i].equals("--stats") && i + 1 < args.length) {
+                statsPath = Paths.get(args[++i]);
+            } else {
+                inputs.add(Paths.get(args[i]));
+            }
+        }
+        if (inputs.isEmpty()) {
+            System.err.println("Usage: BatchCompiler [--cache dir] [--cache-size MB] [--stats file] <file-or-directory>...");
+            System.exit(2);
+        }
+        CompilationCache cache = cacheDir == null ? null : new CompilationCache(cacheDir, cacheBytes);
+
+        long start = System.nanoTime();
+        Map<TokenType, DFA> tokenDFAs = null; // only built if something needs compiling
+        int compiled = 0;
+        int cached = 0;
+        int failed = 0;
+        for (Path file : collectSources(inputs)) {
+            String source = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+            CompilationResult result = cache == null ? null : cache.get(source);
+            if (result != null) {
+                cached++;
+            } else {
+                if (tokenDFAs == null) {
+                    tokenDFAs = new Lexer("").getTokenDFAs();
+                }
+                result = CompilationResult.compile(source, tokenDFAs);
+                if (cache != null) {
+                    cache.put(source, result);
+                }
+                compiled++;
+            }
+            List<String> errors = result.getErrorHandler().getErrors();
+            if (!errors.isEmpty()) {
+                failed++;
+                System.out.println(file + ": " + errors.size() + " error(s)");
+                for (String error : errors) {
+                    System.out.println("  " + error);
+                }
+            }
+        }
+        System.out.printf("%d compiled, %d from cache, %d with errors in %.1f ms%n",
+                          compiled, cached, failed, (System.nanoTime() - start) / 1e6);
+        if (statsPath != null) {
+            Map<String, Number> gauges = new LinkedHashMap<>();
+            gauges.put("filesCompiled", compiled);
+            gauges.put("filesFromCache", cached);
+            gauges.put("filesWithErrors", failed);
+            Files.write(statsPath, CompilerMetrics.toJson(gauges).getBytes(StandardCharsets.UTF_8));
+        }
+        if (failed > 0) {
+            System.exit(1);
+        }
+    }
+
+    private static List<Path> collectSources(List<Path> inputs) throws IOException {
+        List<Path> sources = new ArrayList<>();
+        for (Path input : inputs) {
+            if (Files.isDirectory(input)) {
+                try (Stream<Path> files = Files.walk(input)) {
+                    files.filter(path -> path.toString().endsWith(".ms")).sorted().forEach(sources::add);
+                }
+            } else {
+                sources.add(input);
+            }
+        }
+        return sources;
+    }
+}
@@ -0,0 +1,166 @@
+package Compiler;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+// Finds the end of long character runs (whitespace, identifiers, comment bodies)
+// for the Lexer. When the input is pure ASCII it classifies 8 bytes per step with
+// SWAR bit tricks on a byte copy of the input; otherwise, or when disabled with
+// -Dcompiler.swar=false, it falls back to a scalar loop with identical results.
+public class CharRunScanner {
+    private static final VarHandle LONG_VIEW =
+            MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final long HIGH_BITS = 0x8080808080808080L;
+    private static final long ONES = 0x0101010101010101L;
+
+    private final String input;
+    private final byte[] bytes; // null when the scalar path is used
+
+    public CharRunScanner(String input) {
+        this(input, !"false".equals(System.getProperty("compiler.swar")));
+    }
+
+    public CharRunScanner(String input, boolean wordAtATime) {
+        this.input = input;
+        this.bytes = wordAtATime ? asciiBytes(input) : null;
+    }
+
+    public boolean isWordAtATime() {
+        return bytes != null;
+    }
+
+    // First index >= pos that is not whitespace (per Character.isWhitespace).
+    public int skipWhitespace(int pos) {
+        if (bytes == null) {
+            while (pos < input.length() && Character.isWhitespace(input.charAt(pos))) {
+                pos++;
+            }
+            return pos;
+        }
+        for (; pos + 8 <= bytes.length; pos += 8) {
+            long word = (long) LONG_VIEW.get(bytes, pos);
+            // ASCII whitespace is 9..13 and 28..32.
+            long other = ~(inRange(word, 9, 13) | inRange(word, 28, 32)) & HIGH_BITS;
+            if (other != 0) {
+                return pos + (Long.numberOfTrailingZeros(other) >>> 3);
+            }
+        }
+        while (pos < bytes.length && Character.isWhitespace(bytes[pos])) {
+            pos++;
+        }
+        return pos;
+    }
+
+    // First index >= pos that is not a lowercase letter.
+    public int identifierEnd(int pos) {
+        if (bytes == null) {
+            while (pos < input.length() && input.charAt(pos) >= 'a' && input.charAt(pos) <= 'z') {
+                pos++;
+            }
+            return pos;
+        }
+        for (; pos + 8 <= bytes.length; pos += 8) {
+            long other = ~inRange((long) LONG_VIEW.get(bytes, pos), 'a', 'z') & HIGH_BITS;
+            if (other != 0) {
+                return pos + (Long.numberOfTrailingZeros(other) >>> 3);
+            }
+        }
+        while (pos < bytes.length && bytes[pos] >= 'a' && bytes[pos] <= 'z') {
+            pos++;
+        }
+        return pos;
+    }
+
+    // First index >= pos that is not printable ASCII (32..126), i.e. the end of a "//" comment.
+    public int printableEnd(int pos) {
+        if (bytes == null) {
+            while (pos < input.length() && isPrintable(input.charAt(pos))) {
+                pos++;
+            }
+            return pos;
+        }
+        for (; pos + 8 <= bytes.length; pos += 8) {
+            long other = ~inRange((long) LONG_VIEW.get(bytes, pos), 32, 126) & HIGH_BITS;
+            if (other != 0) {
+                return pos + (Long.numberOfTrailingZeros(other) >>> 3);
+            }
+        }
+        while (pos < bytes.length && isPrintable(bytes[pos])) {
+            pos++;
+        }
+        return pos;
+    }
+
+    // Given pos just after an opening "/*", returns the index just past the first "*/",
+    // or -1 if there is none or a character the comment regex rejects comes first.
+    public int multiCommentEnd(int pos) {
+        if (bytes == null) {
+            for (int i = pos; i < input.length(); i++) {
+                char c = input.charAt(i);
+                if (c == '*' && i + 1 < input.length() && input.charAt(i + 1) == '/') {
+                    return i + 2;
+                }
+                if (!isCommentBody(c)) {
+                    return -1;
+                }
+            }
+            return -1;
+        }
+        int i = pos;
+        for (; i + 8 <= bytes.length; i += 8) {
+            long word = (long) LONG_VIEW.get(bytes, i);
+            long stars = inRange(word, '*', '*');
+            long invalid = ~(inRange(word, 32, 126) | inRange(word, '\t', '\n') | inRange(word, '\r', '\r')) & HIGH_BITS;
+            long interesting = stars | invalid;
+            while (interesting != 0) {
+                int at = i + (Long.numberOfTrailingZeros(interesting) >>> 3);
+                if (bytes[at] != '*') {
+                    return -1;
+                }
+                if (at + 1 < bytes.length && bytes[at + 1] == '/') {
+                    return at + 2;
+                }
+                interesting &= interesting - 1;
+            }
+        }
+        for (; i < bytes.length; i++) {
+            if (bytes[i] == '*' && i + 1 < bytes.length && bytes[i + 1] == '/') {
+                return i + 2;
+            }
+            if (!isCommentBody((char) bytes[i])) {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    // Sets the high bit of every byte in lo..hi. Valid because every byte is ASCII,
+    // so none of the per-byte additions can carry into the neighbouring byte.
+    private static long inRange(long word, int lo, int hi) {
+        long atLeastLo = word + ONES * (128 - lo);
+        long aboveHi = word + ONES * (127 - hi);
+        return atLeastLo & ~aboveHi & HIGH_BITS;
+    }
+
+    private static boolean isPrintable(int c) {
+        return c >= 32 && c <= 126;
+    }
+
+    // Characters the MULTI_COMMENT regex accepts inside a comment.
+    private static boolean isCommentBody(char c) {
+        return isPrintable(c) || c == '\n' || c == '\r' || c == '\t';
+    }
+
+    private static byte[] asciiBytes(String input) {
+        byte[] bytes = new byte[input.length()];
+        for (int i = 0; i < bytes.length; i++) {
+            char c = input.charAt(i);
+            if (c >= 128) {
+                return null;
+            }
+            bytes[i] = (byte) c;
+        }
+        return bytes;
+    }
+}
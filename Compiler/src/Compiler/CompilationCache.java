@@ -0,0 +1,230 @@
+package Compiler;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+// Content-addressed on-disk cache of CompilationResults.
+//
+// Entries are keyed by SHA-256 of (front-end fingerprint, source text) and stored as
+// <dir>/<first two hex digits>/<key>.bin with a CRC32 trailer. Writers publish with an
+// atomic rename of a private temp file, so concurrent writers (threads or processes)
+// never expose a partial entry; a corrupt entry is simply treated as a miss. Hits bump
+// the file's modification time, and once the cache grows past its size cap the least
+// recently used entries are evicted.
+public class CompilationCache {
+    // Part of the fingerprint. The fingerprint already changes with the token definitions
+    // and with the bytecode of FRONTEND_CLASSES, so this only needs a bump when results
+    // change for a reason neither shows, e.g. a JDK behaviour the front end relies on. A
+    // class that CompilationResult.compile() starts to depend on belongs in
+    // FRONTEND_CLASSES rather than a bump here.
+    static final String SPEC_VERSION = "ms-frontend-2";
+    // Classes whose code decides what a CompilationResult contains.
+    private static final Class<?>[] FRONTEND_CLASSES = {
+        Lexer.class, CharRunScanner.class, RegexToNFA.class, NFA.class, DFA.class, LineIndex.class,
+        Token.class, TokenType.class, SymbolTable.class, ErrorHandler.class, SemanticAnalyzer.class,
+        CompilationResult.class
+    };
+    static final byte[] FINGERPRINT = fingerprint();
+    public static final long DEFAULT_MAX_BYTES = 256L * 1024 * 1024;
+
+    private final Path directory;
+    private final long maxBytes;
+    private final AtomicLong approximateSize;
+
+    public CompilationCache(Path directory) throws IOException {
+        this(directory, DEFAULT_MAX_BYTES);
+    }
+
+    public CompilationCache(Path directory, long maxBytes) throws IOException {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        Files.createDirectories(directory);
+        this.approximateSize = new AtomicLong(totalSize());
+    }
+
+    // Returns the cached result for this exact source, or null on a miss.
+    public CompilationResult get(String source) {
+        Path entry = entryPath(key(source));
+        byte[] data;
+        try {
+            data = Files.readAllBytes(entry);
+        } catch (IOException e) {
+            return null;
+        }
+        CompilationResult result;
+        try {
+            result = decode(data);
+        } catch (IOException e) {
+            // Corrupt or from an incompatible build; drop it and recompile.
+            try {
+                Files.deleteIfExists(entry);
+            } catch (IOException ignored) {
+                // Another process may be replacing it right now.
+            }
+            return null;
+        }
+        try {
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            // Only affects eviction order (read-only cache, entry evicted meanwhile).
+        }
+        return result;
+    }
+
+    public void put(String source, CompilationResult result) throws IOException {
+        Path entry = entryPath(key(source));
+        Files.createDirectories(entry.getParent());
+        byte[] data = encode(result);
+        Path temp = Files.createTempFile(entry.getParent(), "entry", ".part");
+        long replaced;
+        try {
+            Files.write(temp, data);
+            replaced = sizeOrZero(entry);
+            Files.move(temp, entry, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        // Replacing an entry (same source, or a concurrent writer) only adds the difference
+        if (approximateSize.addAndGet(data.length - replaced) > maxBytes) {
+            evict();
+        }
+    }
+
+    // Deletes least recently used entries until the cache is back under 90% of its cap.
+    private synchronized void evict() throws IOException {
+        List<Path> entries = listEntries();
+        long size = 0;
+        Map<Path, Long> sizes = new HashMap<>();
+        Map<Path, Long> lastUsed = new HashMap<>();
+        for (Path entry : entries) {
+            try {
+                sizes.put(entry, Files.size(entry));
+                lastUsed.put(entry, Files.getLastModifiedTime(entry).toMillis());
+                size += sizes.get(entry);
+            } catch (IOException e) {
+                // Removed concurrently.
+            }
+        }
+        entries.removeIf(entry -> !sizes.containsKey(entry));
+        entries.sort(Comparator.comparing(lastUsed::get));
+        long target = maxBytes / 10 * 9;
+        for (Path entry : entries) {
+            if (size <= target) {
+                break;
+            }
+            if (Files.deleteIfExists(entry)) {
+                size -= sizes.get(entry);
+            }
+        }
+        approximateSize.set(size);
+    }
+
+    private static long sizeOrZero(Path entry) {
+        try {
+            return Files.size(entry);
+        } catch (IOException e) {
+            return 0; // absent, or removed concurrently
+        }
+    }
+
+    private long totalSize() throws IOException {
+        long size = 0;
+        for (Path entry : listEntries()) {
+            try {
+                size += Files.size(entry);
+            } catch (IOException e) {
+                // Removed concurrently.
+            }
+        }
+        return size;
+    }
+
+    private List<Path> listEntries() throws IOException {
+        try (Stream<Path> files = Files.walk(directory, 2)) {
+            List<Path> entries = new ArrayList<>();
+            files.filter(path -> path.toString().endsWith(".bin")).forEach(entries::add);
+            return entries;
+        }
+    }
+
+    private Path entryPath(String key) {
+        return directory.resolve(key.substring(0, 2)).resolve(key + ".bin");
+    }
+
+    static String key(String source) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(FINGERPRINT);
+            digest.update(source.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest.digest()) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("SHA-256 is not available", e);
+        }
+    }
+
+    // SHA-256 over SPEC_VERSION, the token definitions and the class files of
+    // FRONTEND_CLASSES. A class file that cannot be read (unusual packaging) contributes
+    // just its name, which leaves SPEC_VERSION as the only guard for it.
+    private static byte[] fingerprint() {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(SPEC_VERSION.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            String definitions = Lexer.TOKEN_REGEXES + "\0" + Lexer.KEYWORDS + "\0" + Lexer.DATA_TYPES;
+            digest.update(definitions.getBytes(StandardCharsets.UTF_8));
+            for (Class<?> type : FRONTEND_CLASSES) {
+                digest.update((byte) 0);
+                digest.update(type.getName().getBytes(StandardCharsets.UTF_8));
+                try (InputStream in = type.getResourceAsStream(type.getSimpleName() + ".class")) {
+                    if (in != null) {
+                        digest.update(in.readAllBytes());
+                    }
+                } catch (IOException e) {
+                    // Fall back to the name alone.
+                }
+            }
+            return digest.digest();
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("SHA-256 is not available", e);
+        }
+    }
+
+    private static byte[] encode(CompilationResult result) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        result.writeTo(out);
+        out.flush();
+        CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray());
+        out.writeLong(crc.getValue());
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static CompilationResult decode(byte[] data) throws IOException {
+        if (data.length < Long.BYTES) {
+            throw new IOException("Truncated cache entry");
+        }
+        int payload = data.length - Long.BYTES;
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, payload);
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        in.skipBytes(payload);
+        if (in.readLong() != crc.getValue()) {
+            throw new IOException("Cache entry checksum mismatch");
+        }
+        return CompilationResult.readFrom(new DataInputStream(new ByteArrayInputStream(data, 0, payload)));
+    }
+}
@@ -0,0 +1,140 @@
+package Compiler;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+// Everything the front end produces for one source file: tokens, symbol table and
+// diagnostics. Can be written to and read back from a compact binary form, which is
+// what CompilationCache stores.
+public class CompilationResult {
+    private static final int MAGIC = 0x4D53_4352; // "MSCR"
+    private static final int FORMAT_VERSION = 2; // 2: errors carry their source offset
+
+    private final List<Token> tokens;
+    private final SymbolTable symbolTable;
+    private final ErrorHandler errorHandler;
+
+    public CompilationResult(List<Token> tokens, SymbolTable symbolTable, ErrorHandler errorHandler) {
+        this.tokens = tokens;
+        this.symbolTable = symbolTable;
+        this.errorHandler = errorHandler;
+    }
+
+    // Lexes and analyzes a source file using shared, prebuilt token DFAs.
+    public static CompilationResult compile(String source, Map<TokenType, DFA> tokenDFAs) {
+        Lexer lexer = new Lexer(source, tokenDFAs);
+        lexer.tokenize();
+        new SemanticAnalyzer(lexer.getTokens(), lexer.getSymbolTable(), lexer.getErrorHandler(),
+                             lexer.getLineIndex()).analyze();
+        return new CompilationResult(lexer.getTokens(), lexer.getSymbolTable(), lexer.getErrorHandler());
+    }
+
+    public List<Token> getTokens() {
+        return tokens;
+    }
+
+    public SymbolTable getSymbolTable() {
+        return symbolTable;
+    }
+
+    public ErrorHandler getErrorHandler() {
+        return errorHandler;
+    }
+
+    // Layout: magic, version, tokens (type ordinal, offset, value), symbol entries,
+    // then errors (offset, -1 if none, and message). Strings are length-prefixed UTF-8;
+    // null is length -1.
+    public void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeInt(tokens.size());
+        for (Token token : tokens) {
+            out.writeByte(token.type.ordinal());
+            out.writeInt(token.offset);
+            writeString(out, token.value);
+        }
+        Collection<SymbolTable.SymbolEntry> entries = symbolTable.getEntries();
+        out.writeInt(entries.size());
+        for (SymbolTable.SymbolEntry entry : entries) {
+            writeString(out, entry.identifierName);
+            writeString(out, entry.dataType);
+            writeString(out, entry.scope);
+            out.writeInt(entry.memoryLocation);
+            writeString(out, entry.value);
+            out.writeInt(entry.attributes.size());
+            for (Map.Entry<String, String> attribute : entry.attributes.entrySet()) {
+                writeString(out, attribute.getKey());
+                writeString(out, attribute.getValue());
+            }
+        }
+        List<String> errors = errorHandler.getErrors();
+        List<Integer> errorOffsets = errorHandler.getErrorOffsets();
+        out.writeInt(errors.size());
+        for (int i = 0; i < errors.size(); i++) {
+            out.writeInt(errorOffsets.get(i));
+            writeString(out, errors.get(i));
+        }
+    }
+
+    public static CompilationResult readFrom(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+            throw new IOException("Not a compilation result, or an unsupported format version");
+        }
+        TokenType[] tokenTypes = TokenType.values();
+        int tokenCount = in.readInt();
+        List<Token> tokens = new ArrayList<>(tokenCount);
+        for (int i = 0; i < tokenCount; i++) {
+            int ordinal = in.readUnsignedByte();
+            if (ordinal >= tokenTypes.length) {
+                throw new IOException("Unknown token type " + ordinal);
+            }
+            int offset = in.readInt();
+            tokens.add(new Token(tokenTypes[ordinal], readString(in), offset));
+        }
+        SymbolTable symbolTable = new SymbolTable();
+        int entryCount = in.readInt();
+        for (int i = 0; i < entryCount; i++) {
+            String name = readString(in);
+            String dataType = readString(in);
+            String scope = readString(in);
+            int memoryLocation = in.readInt();
+            String value = readString(in);
+            int attributeCount = in.readInt();
+            Map<String, String> attributes = new HashMap<>();
+            for (int j = 0; j < attributeCount; j++) {
+                attributes.put(readString(in), readString(in));
+            }
+            symbolTable.addSymbol(name, dataType, scope, memoryLocation, attributes, value);
+        }
+        ErrorHandler errorHandler = new ErrorHandler();
+        int errorCount = in.readInt();
+        for (int i = 0; i < errorCount; i++) {
+            int offset = in.readInt();
+            errorHandler.addError(readString(in), offset);
+        }
+        return new CompilationResult(tokens, symbolTable, errorHandler);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
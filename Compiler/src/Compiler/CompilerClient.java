@@ -0,0 +1,39 @@
+package Compiler;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+// Thin client for CompilerDaemon: sends a source file and prints the daemon's report.
+// Usage: CompilerClient <file.ms> [socket-path]
+public class CompilerClient {
+
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.err.println("Usage: CompilerClient <file.ms> [socket-path]");
+            System.exit(2);
+        }
+        Path sourcePath = Paths.get(args[0]);
+        Path socketPath = args.length > 1 ? Paths.get(args[1]) : CompilerDaemon.DEFAULT_SOCKET;
+        try (SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+            channel.connect(UnixDomainSocketAddress.of(socketPath));
+            OutputStream out = Channels.newOutputStream(channel);
+            out.write(Files.readAllBytes(sourcePath));
+            out.flush();
+            channel.shutdownOutput();
+            InputStream in = Channels.newInputStream(channel);
+            System.out.write(in.readAllBytes());
+            System.out.flush();
+        } catch (IOException e) {
+            System.err.println("Error talking to compiler daemon at " + socketPath + ": " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package Compiler;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Long-lived compile server. Builds the token DFAs once, warms up the JIT, then serves
+// compile requests on a Unix domain socket, one virtual thread per connection.
+//
+// Protocol: the client sends the source text (UTF-8) and shuts down its output; the
+// server replies with the compile report (token count, symbol table, diagnostics)
+// and closes the connection. See CompilerClient. With a cache directory, results for
+// previously seen sources are served from the CompilationCache.
+// Usage: CompilerDaemon [socket-path] [cache-dir]
+public class CompilerDaemon {
+    static final Path DEFAULT_SOCKET = Paths.get(System.getProperty("java.io.tmpdir"), "ms-compiler.sock");
+    private static final int WARMUP_ROUNDS = 200;
+    // Representative program used to warm up the JIT (also by the LanguageServer).
+    static final String WARMUP_SAMPLE = "global integer max = 100\n"
+            + "global float pi = 3.14159\n"
+            + "// warm-up\n"
+            + "function int main() {\n"
+            + "    integer count = 0\n"
+            + "    float sum = 0.0\n"
+            + "    while (count < max) {\n"
+            + "        sum = sum + pi * 2 ^ 3 % 7\n"
+            + "        count = count + 1\n"
+            + "    }\n"
+            + "    /* done */\n"
+            + "    return count\n"
+            + "}\n";
+
+    private final Map<TokenType, DFA> tokenDFAs;
+    private final CompilationCache cache; // may be null
+
+    public CompilerDaemon(CompilationCache cache) {
+        this.cache = cache;
+        this.tokenDFAs = new Lexer("").getTokenDFAs();
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path socketPath = args.length > 0 ? Paths.get(args[0]) : DEFAULT_SOCKET;
+        CompilationCache cache = args.length > 1 ? new CompilationCache(Paths.get(args[1])) : null;
+        if (isListening(socketPath)) {
+            System.err.println("A compiler daemon is already listening on " + socketPath.toAbsolutePath());
+            System.exit(1);
+        }
+        CompilerDaemon daemon = new CompilerDaemon(cache);
+        daemon.warmUp();
+        daemon.serve(socketPath);
+    }
+
+    // Compiles one source file and returns the report sent back to clients.
+    public String compile(String source) throws IOException {
+        long start = System.nanoTime();
+        CompilationResult result = cache == null ? null : cache.get(source);
+        boolean cached = result != null;
+        if (!cached) {
+            result = CompilationResult.compile(source, tokenDFAs);
+            if (cache != null) {
+                cache.put(source, result);
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+
+        StringWriter report = new StringWriter();
+        PrintWriter out = new PrintWriter(report);
+        out.println("Total Tokens: " + result.getTokens().size());
+        out.println("\n=== Symbol Table ===");
+        result.getSymbolTable().displayTable(out);
+        out.println("\n=== Error Report ===");
+        result.getErrorHandler().displayErrors(out);
+        out.printf("%n%s in %.3f ms%n", cached ? "Served from cache" : "Compiled", elapsed / 1e6);
+        out.flush();
+        return report.toString();
+    }
+
+    // Runs a representative program through the pipeline so requests hit compiled code.
+    void warmUp() {
+        CompilationResult result = null;
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            result = CompilationResult.compile(WARMUP_SAMPLE, tokenDFAs);
+        }
+        if (result.getErrorHandler().hasErrors()) {
+            System.err.println("Warm-up program has errors:");
+            result.getErrorHandler().displayErrors();
+        }
+    }
+
+    void serve(Path socketPath) throws IOException {
+        // A socket file left by a daemon that died is removed; a live one is not taken over
+        if (isListening(socketPath)) {
+            throw new IOException("A compiler daemon is already listening on " + socketPath.toAbsolutePath());
+        }
+        Files.deleteIfExists(socketPath);
+        try (ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+             ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor()) {
+            server.bind(UnixDomainSocketAddress.of(socketPath));
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    Files.deleteIfExists(socketPath);
+                } catch (IOException e) {
+                    // Nothing more to do while shutting down.
+                }
+            }));
+            System.out.println("Compiler daemon listening on " + socketPath.toAbsolutePath());
+            while (true) {
+                SocketChannel client = server.accept();
+                workers.submit(() -> handle(client));
+            }
+        }
+    }
+
+    // Whether a server accepts connections on the socket at socketPath.
+    static boolean isListening(Path socketPath) {
+        if (!Files.exists(socketPath)) {
+            return false;
+        }
+        try (SocketChannel probe = SocketChannel.open(UnixDomainSocketAddress.of(socketPath))) {
+            return probe.isConnected();
+        } catch (IOException e) {
+            return false; // stale socket file (connection refused) or not a socket
+        }
+    }
+
+    private void handle(SocketChannel client) {
+        try (client) {
+            InputStream in = Channels.newInputStream(client);
+            String source = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            String report;
+            try {
+                report = compile(source);
+            } catch (IOException | RuntimeException e) {
+                report = "Internal compiler error: " + e + "\n";
+            }
+            OutputStream out = Channels.newOutputStream(client);
+            out.write(report.getBytes(StandardCharsets.UTF_8));
+            out.flush();
+        } catch (IOException e) {
+            System.err.println("Error serving request: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package Compiler;
+
+import java.util.*;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// Process-wide counters and phase timers for the compiler pipeline.
+//
+// Classes register what they measure once, in static fields, and update it on the hot
+// path with a single LongAdder add, so recording is cheap and safe from any thread.
+// Timed phases also emit a PhaseEvent for Java Flight Recorder. toJson() renders a
+// snapshot (plus derived rates) for the --stats report.
+public final class CompilerMetrics {
+    private static final Map<String, Counter> counters = new TreeMap<>();
+    private static final Map<String, Timer> timers = new TreeMap<>();
+
+    private CompilerMetrics() {
+    }
+
+    public static final class Counter {
+        private final LongAdder value = new LongAdder();
+
+        public void increment() {
+            value.increment();
+        }
+
+        public void add(long amount) {
+            value.add(amount);
+        }
+
+        public long get() {
+            return value.sum();
+        }
+    }
+
+    public static final class Timer {
+        private final String phase;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+        private Timer(String phase) {
+            this.phase = phase;
+        }
+
+        // Starts timing one run of this phase; close the returned Phase when it ends.
+        public Phase start() {
+            return new Phase(this);
+        }
+
+        void record(long nanos) {
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public long getTotalNanos() {
+            return totalNanos.sum();
+        }
+    }
+
+    // One timed run of a phase. Optionally carries the amount of work done (bytes, and
+    // items such as tokens or states) into the flight recorder event.
+    public static final class Phase implements AutoCloseable {
+        private final Timer timer;
+        private final PhaseEvent event = new PhaseEvent();
+        private final long start = System.nanoTime();
+
+        private Phase(Timer timer) {
+            this.timer = timer;
+            event.begin();
+        }
+
+        public void setWork(long bytes, long items) {
+            event.bytes = bytes;
+            event.items = items;
+        }
+
+        @Override
+        public void close() {
+            timer.record(System.nanoTime() - start);
+            event.end();
+            if (event.shouldCommit()) {
+                event.phase = timer.phase;
+                event.commit();
+            }
+        }
+    }
+
+    public static synchronized Counter counter(String name) {
+        return counters.computeIfAbsent(name, k -> new Counter());
+    }
+
+    public static synchronized Timer timer(String phase) {
+        return timers.computeIfAbsent(phase, Timer::new);
+    }
+
+    // Renders every counter and timer, then rates derived from them. Extra values (for
+    // example gauges of the last compiled file) are added under "gauges".
+    public static synchronized String toJson(Map<String, ? extends Number> gauges) {
+        StringBuilder json = new StringBuilder();
+        json.append("{\n  \"counters\": {");
+        String separator = "\n";
+        for (Map.Entry<String, Counter> entry : counters.entrySet()) {
+            json.append(separator).append("    \"").append(entry.getKey()).append("\": ").append(entry.getValue().get());
+            separator = ",\n";
+        }
+        json.append("\n  },\n  \"timers\": {");
+        separator = "\n";
+        for (Map.Entry<String, Timer> entry : timers.entrySet()) {
+            Timer timer = entry.getValue();
+            json.append(separator).append("    \"").append(entry.getKey()).append("\": {")
+                .append("\"count\": ").append(timer.getCount())
+                .append(", \"totalMs\": ").append(millis(timer.getTotalNanos()))
+                .append(", \"maxMs\": ").append(millis(timer.maxNanos.get()))
+                .append('}');
+            separator = ",\n";
+        }
+        json.append("\n  },\n  \"gauges\": {");
+        separator = "\n";
+        for (Map.Entry<String, ? extends Number> entry : gauges.entrySet()) {
+            json.append(separator).append("    \"").append(entry.getKey()).append("\": ").append(entry.getValue());
+            separator = ",\n";
+        }
+        json.append("\n  },\n  \"derived\": {\n");
+        double lexSeconds = timerNanos("lex") / 1e9;
+        long tokens = counterValue("lexer.tokens");
+        json.append("    \"tokensPerSecond\": ").append(rate(tokens, lexSeconds)).append(",\n");
+        json.append("    \"bytesPerSecond\": ").append(rate(counterValue("lexer.bytes"), lexSeconds)).append(",\n");
+        json.append("    \"dfaStepsPerToken\": ").append(rate(counterValue("dfa.matchSteps"), tokens)).append(",\n");
+        json.append("    \"dfaMatchesPerToken\": ").append(rate(counterValue("dfa.matchCalls"), tokens)).append('\n');
+        json.append("  }\n}\n");
+        return json.toString();
+    }
+
+    // Size and estimated hash-chain shape (see SymbolTable.estimateChainStats) of one
+    // symbol table, for the "gauges" section.
+    public static Map<String, Number> symbolTableGauges(SymbolTable symbolTable) {
+        long[] chains = symbolTable.estimateChainStats();
+        int symbols = symbolTable.getEntries().size();
+        Map<String, Number> gauges = new LinkedHashMap<>();
+        gauges.put("symbols", symbols);
+        gauges.put("symbolBucketsEstimate", chains[0]);
+        gauges.put("symbolMaxProbeEstimate", chains[1]);
+        gauges.put("symbolMeanProbeEstimate", symbols == 0 ? 0.0 : (double) chains[2] / symbols);
+        return gauges;
+    }
+
+    private static long counterValue(String name) {
+        Counter counter = counters.get(name);
+        return counter == null ? 0 : counter.get();
+    }
+
+    private static long timerNanos(String phase) {
+        Timer timer = timers.get(phase);
+        return timer == null ? 0 : timer.getTotalNanos();
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1e6);
+    }
+
+    private static String rate(double amount, double per) {
+        return per == 0 ? "0" : String.format(Locale.ROOT, "%.2f", amount / per);
+    }
+}
@@ -1,67 +1,133 @@
 package Compiler;
 
+import java.io.PrintWriter;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
 
+// DFA built from an NFA by subset construction. NFA state sets are BitSets over the
+// NFA's dense state ids, and DFA states get dense ids in the order they are discovered:
+// breadth-first from the start state, transitions in ascending character order. The
+// numbering therefore depends only on the NFA, and tables built from it are
+// reproducible.
+//
+// The construction expands one breadth-first level at a time. Successor sets of every
+// node in a level are computed independently (on the common pool when the level is
+// wide), and only then are new sets numbered, in level order and character order. That
+// is exactly the order a sequential queue would discover them in, so the result does
+// not depend on the number of threads. Disable with -Dcompiler.parallelDfa=false.
 public class DFA {
 	///////
+    static final boolean PARALLEL = !"false".equals(System.getProperty("compiler.parallelDfa"));
+    // Levels narrower than this are expanded on the calling thread.
+    static final int PARALLEL_LEVEL_SIZE = 64;
+    
     private DFANode startNode;
-    private Set<DFANode> allNodes;
+    private List<DFANode> allNodes; // indexed by id
+    
+    private static final CompilerMetrics.Timer BUILD_TIMER = CompilerMetrics.timer("nfaToDfa");
+    private static final CompilerMetrics.Counter DFA_STATES = CompilerMetrics.counter("dfa.states");
+    private static final CompilerMetrics.Counter MATCH_CALLS = CompilerMetrics.counter("dfa.matchCalls");
+    private static final CompilerMetrics.Counter MATCH_STEPS = CompilerMetrics.counter("dfa.matchSteps");
     
     // Construct DFA by converting from the provided NFA.
     public DFA(NFA nfa) {
-        convertNfaToDfa(nfa);
+        try (CompilerMetrics.Phase phase = BUILD_TIMER.start()) {
+            convertNfaToDfa(nfa);
+            DFA_STATES.add(allNodes.size());
+            phase.setWork(0, allNodes.size());
+        }
     }
     
-    private void convertNfaToDfa(NFA nfa) {
-        Map<Set<NFA.State>, DFANode> dfaStates = new HashMap<>();
-        allNodes = new HashSet<>();
-        Set<NFA.State> startSet = epsilonClosure(Collections.singleton(nfa.startState));
-        DFANode startDfa = new DFANode(startSet, startSet.contains(nfa.acceptState));
-        startNode = startDfa;
-        dfaStates.put(startSet, startDfa);
-        allNodes.add(startDfa);
+    // One outgoing transition of a node being expanded: the closed target set, and the
+    // node for it if that set was already numbered before this level.
+    private static class Move {
+        final char symbol;
+        final BitSet targetSet;
+        final DFANode known;
         
-        Queue<DFANode> queue = new LinkedList<>();
-        queue.add(startDfa);
+        Move(char symbol, BitSet targetSet, DFANode known) {
+            this.symbol = symbol;
+            this.targetSet = targetSet;
+            this.known = known;
+        }
+    }
+    
+    private void convertNfaToDfa(NFA nfa) {
+        NFA.State[] nfaStates = nfa.statesById();
+        // Written only between levels; read concurrently while a level is expanded
+        Map<BitSet, DFANode> dfaStates = new ConcurrentHashMap<>();
+        allNodes = new ArrayList<>();
+        BitSet startSet = new BitSet(nfaStates.length);
+        startSet.set(nfa.startState.id);
+        startSet = epsilonClosure(startSet, nfaStates);
+        startNode = addNode(startSet, nfa, dfaStates);
         
-        while (!queue.isEmpty()) {
-            DFANode current = queue.poll();
-            Map<Character, Set<NFA.State>> transitions = new HashMap<>();
-            for (NFA.State state : current.nfaStates) {
-                for (Map.Entry<Character, List<NFA.State>> entry : state.transitions.entrySet()) {
-                    char symbol = entry.getKey();
-                    for (NFA.State next : entry.getValue()) {
-                        transitions.computeIfAbsent(symbol, k -> new HashSet<>())
-                                   .addAll(epsilonClosure(Collections.singleton(next)));
+        int levelStart = 0;
+        while (levelStart < allNodes.size()) {
+            List<DFANode> level = new ArrayList<>(allNodes.subList(levelStart, allNodes.size()));
+            levelStart = allNodes.size();
+            Stream<DFANode> nodes = PARALLEL && level.size() >= PARALLEL_LEVEL_SIZE
+                    ? level.parallelStream() : level.stream();
+            List<List<Move>> moves = nodes.map(node -> expand(node, nfaStates, dfaStates)).toList();
+            // Number new sets in the order a sequential breadth-first search would find them
+            for (int i = 0; i < level.size(); i++) {
+                DFANode current = level.get(i);
+                for (Move move : moves.get(i)) {
+                    DFANode targetDfa = move.known != null ? move.known : dfaStates.get(move.targetSet);
+                    if (targetDfa == null) {
+                        targetDfa = addNode(move.targetSet, nfa, dfaStates);
                     }
+                    current.transitions.put(move.symbol, targetDfa);
                 }
             }
-            for (Map.Entry<Character, Set<NFA.State>> entry : transitions.entrySet()) {
-                char symbol = entry.getKey();
-                Set<NFA.State> targetSet = entry.getValue();
-                DFANode targetDfa = dfaStates.get(targetSet);
-                if (targetDfa == null) {
-                    targetDfa = new DFANode(targetSet, targetSet.contains(nfa.acceptState));
-                    dfaStates.put(targetSet, targetDfa);
-                    queue.add(targetDfa);
-                    allNodes.add(targetDfa);
+        }
+    }
+    
+    // Successor sets of one node, in ascending character order.
+    private static List<Move> expand(DFANode node, NFA.State[] nfaStates, Map<BitSet, DFANode> dfaStates) {
+        SortedMap<Character, BitSet> transitions = new TreeMap<>();
+        BitSet set = node.nfaStates;
+        for (int s = set.nextSetBit(0); s >= 0; s = set.nextSetBit(s + 1)) {
+            for (Map.Entry<Character, List<NFA.State>> entry : nfaStates[s].transitions.entrySet()) {
+                BitSet targets = transitions.computeIfAbsent(entry.getKey(), k -> new BitSet(nfaStates.length));
+                for (NFA.State next : entry.getValue()) {
+                    targets.set(next.id);
                 }
-                current.transitions.put(symbol, targetDfa);
             }
         }
+        List<Move> moves = new ArrayList<>(transitions.size());
+        for (Map.Entry<Character, BitSet> entry : transitions.entrySet()) {
+            BitSet targetSet = epsilonClosure(entry.getValue(), nfaStates);
+            moves.add(new Move(entry.getKey(), targetSet, dfaStates.get(targetSet)));
+        }
+        return moves;
+    }
+    
+    private DFANode addNode(BitSet nfaSet, NFA nfa, Map<BitSet, DFANode> dfaStates) {
+        DFANode node = new DFANode(allNodes.size(), nfaSet, nfaSet.get(nfa.acceptState.id));
+        dfaStates.put(nfaSet, node);
+        allNodes.add(node);
+        return node;
     }
     
     // Computes the epsilon-closure of a set of NFA states.
-    private Set<NFA.State> epsilonClosure(Set<NFA.State> states) {
-        Set<NFA.State> closure = new HashSet<>(states);
-        Stack<NFA.State> stack = new Stack<>();
-        stack.addAll(states);
-        while (!stack.isEmpty()) {
-            NFA.State state = stack.pop();
+    private static BitSet epsilonClosure(BitSet states, NFA.State[] nfaStates) {
+        BitSet closure = (BitSet) states.clone();
+        int[] stack = new int[Math.max(states.cardinality(), 16)];
+        int size = 0;
+        for (int s = states.nextSetBit(0); s >= 0; s = states.nextSetBit(s + 1)) {
+            stack[size++] = s;
+        }
+        while (size > 0) {
+            NFA.State state = nfaStates[stack[--size]];
             for (NFA.State next : state.epsilonTransitions) {
-                if (!closure.contains(next)) {
-                    closure.add(next);
-                    stack.push(next);
+                if (!closure.get(next.id)) {
+                    closure.set(next.id);
+                    if (size == stack.length) {
+                        stack = Arrays.copyOf(stack, size * 2);
+                    }
+                    stack[size++] = next.id;
                 }
             }
         }
@@ -70,9 +136,17 @@ public class DFA {
     
     // Matches the longest prefix of the input string that the DFA accepts.
     public String match(String input) {
+        int end = matchEnd(input, 0);
+        return end == -1 ? null : input.substring(0, end);
+    }
+    
+    // Longest match starting at start, without copying the rest of the input.
+    // Returns the end offset (exclusive), or -1 if nothing from start is accepted.
+    public int matchEnd(String input, int start) {
         DFANode current = startNode;
         int lastAcceptIndex = -1;
-        for (int i = 0; i < input.length(); i++) {
+        int i = start;
+        for (; i < input.length(); i++) {
             char c = input.charAt(i);
             if (current.transitions.containsKey(c)) {
                 current = current.transitions.get(c);
@@ -83,30 +157,38 @@ public class DFA {
                 break;
             }
         }
-        if (lastAcceptIndex != -1) {
-            return input.substring(0, lastAcceptIndex + 1);
-        }
-        return null;
+        MATCH_CALLS.increment();
+        MATCH_STEPS.add(i - start);
+        return lastAcceptIndex == -1 ? -1 : lastAcceptIndex + 1;
+    }
+    
+    public DFANode getStartNode() {
+        return startNode;
+    }
+    
+    // Returns every DFA state in id order, which is breadth-first order from the start
+    // node with transitions visited in ascending character order.
+    public List<DFANode> getStates() {
+        return Collections.unmodifiableList(allNodes);
     }
     
     // Displays the DFA transition table.
     public void displayTransitionTable() {
-        // Build a mapping from each DFA state to a sequential id.
-        Map<DFANode, Integer> stateIdMap = new HashMap<>();
-        int id = 0;
-        for (DFANode node : allNodes) { // Assume allNodes is a collection of all DFA states
-            stateIdMap.put(node, id++);
-        }
-        
+        PrintWriter out = new PrintWriter(System.out);
+        displayTransitionTable(out);
+        out.flush();
+    }
+    
+    public void displayTransitionTable(PrintWriter out) {
         // Print header for the table.
-        System.out.println("DFA Transition Table:");
-        System.out.println("---------------------------------------------------------------");
-        System.out.printf("| %-8s | %-40s |\n", "State", "Transitions (char -> state)");
-        System.out.println("---------------------------------------------------------------");
+        out.println("DFA Transition Table:");
+        out.println("---------------------------------------------------------------");
+        out.printf("| %-8s | %-40s |\n", "State", "Transitions (char -> state)");
+        out.println("---------------------------------------------------------------");
         
         // For each state, annotate start and accepting states.
+        StringBuilder transStr = new StringBuilder();
         for (DFANode node : allNodes) {
-            int stateId = stateIdMap.get(node);
             String marker = "";
             if (node == startNode) {
                 marker += "-"; // start state marker
@@ -114,15 +196,15 @@ public class DFA {
             if (node.isAccept) {
                 marker += "+"; // accepting state marker
             }
-            // Display the new ID with the marker appended.
-            String displayId = stateId + marker;
-            StringBuilder transStr = new StringBuilder();
-            for (Map.Entry<Character, DFANode> entry : node.transitions.entrySet()) {
-                int targetId = stateIdMap.get(entry.getValue());
+            // Display the ID with the marker appended.
+            String displayId = node.id + marker;
+            transStr.setLength(0);
+            for (Map.Entry<Character, DFANode> entry : new TreeMap<>(node.transitions).entrySet()) {
+                int targetId = entry.getValue().id;
                 // display different for new line character
                 if (entry.getKey() == '\n') 
-                {
-                    transStr.append("NL").append("->").append(targetId).append("  ");
+                {
+                    transStr.append("NL").append("->").append(targetId).append("  ");
                 }
                 else if(entry.getKey() == ' ')
                 {
@@ -133,9 +215,9 @@ public class DFA {
                 	transStr.append(entry.getKey()).append("->").append(targetId).append("  ");
                 }
             }
-            System.out.printf("| %-8s | %-40s |\n", displayId, transStr.toString());
+            out.printf("| %-8s | %-40s |\n", displayId, transStr.toString());
         }
-        System.out.println("---------------------------------------------------------------");
+        out.println("---------------------------------------------------------------");
     }
     /*
     public void displayTransitionTable() {
@@ -243,11 +325,13 @@ public class DFA {
     
     // Inner class representing a node (state) in the DFA.
     public static class DFANode {
-        public Set<NFA.State> nfaStates;
+        public int id; // dense, 0 is the start node
+        public BitSet nfaStates; // ids of the NFA states this node stands for
         public boolean isAccept;
         public Map<Character, DFANode> transitions;
         
-        public DFANode(Set<NFA.State> nfaStates, boolean isAccept) {
+        public DFANode(int id, BitSet nfaStates, boolean isAccept) {
+            this.id = id;
             this.nfaStates = nfaStates;
             this.isAccept = isAccept;
             this.transitions = new HashMap<>();
@@ -1,26 +1,57 @@
 package Compiler;
 
+import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.List;
 
 public class ErrorHandler {
 /////////
     private List<String> errors;
+    private List<Integer> offsets; // source offset of each error, or -1 if it has none
+    
+    private static final CompilerMetrics.Counter REPORTED = CompilerMetrics.counter("errors.reported");
     
     public ErrorHandler() {
         errors = new ArrayList<>();
+        offsets = new ArrayList<>();
     }
     
     public void addError(String error) {
+        addError(error, -1);
+    }
+    
+    // Records an error that points at a position in the source (for editor diagnostics).
+    public void addError(String error, int offset) {
         errors.add(error);
+        offsets.add(offset);
+        REPORTED.increment();
+    }
+    
+    public boolean hasErrors() {
+        return !errors.isEmpty();
+    }
+    
+    public List<String> getErrors() {
+        return errors;
+    }
+    
+    // Source offsets parallel to getErrors(); -1 where an error has no position.
+    public List<Integer> getErrorOffsets() {
+        return offsets;
     }
     
     public void displayErrors() {
+        PrintWriter out = new PrintWriter(System.out);
+        displayErrors(out);
+        out.flush();
+    }
+    
+    public void displayErrors(PrintWriter out) {
         if (errors.isEmpty()) {
-            System.out.println("No errors found.");
+            out.println("No errors found.");
         } else {
             for (String error : errors) {
-                System.out.println(error);
+                out.println(error);
             }
         }
     }
@@ -0,0 +1,734 @@
+package Compiler;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Generated by ScannerGenerator from the token DFAs in Lexer. Do not edit by hand.
+public final class GeneratedScanner {
+
+    private GeneratedScanner() {
+    }
+
+    public static List<Token> tokenize(String input, ErrorHandler errorHandler) {
+        List<Token> tokens = new ArrayList<>();
+        CharRunScanner scanner = new CharRunScanner(input);
+        int length = input.length();
+        int pos = 0;
+        LineIndex lineIndex = null; // only needed to report errors
+        while (pos < length) {
+            char c = input.charAt(pos);
+            if (Character.isWhitespace(c)) {
+                pos = scanner.skipWhitespace(pos);
+                continue;
+            }
+            Token run = Lexer.matchRun(input, scanner, c, pos);
+            if (run != null) {
+                tokens.add(run);
+                pos += run.value.length();
+                continue;
+            }
+            TokenType type = null;
+            int end = -1;
+            switch (c) {
+                case '"':
+                    end = matchString(input, pos);
+                    type = TokenType.STRING;
+                    break;
+                case '%', '*', '+', '-', '<', '>', '^':
+                    end = matchOperator(input, pos);
+                    type = TokenType.OPERATOR;
+                    break;
+                case '\'':
+                    end = matchChar(input, pos);
+                    type = TokenType.CHAR;
+                    break;
+                case '(':
+                    end = matchLparen(input, pos);
+                    type = TokenType.LPAREN;
+                    break;
+                case ')':
+                    end = matchRparen(input, pos);
+                    type = TokenType.RPAREN;
+                    break;
+                case '/':
+                    if ((end = matchSingleComment(input, pos)) > pos) {
+                        type = TokenType.SINGLE_COMMENT;
+                        break;
+                    }
+                    if ((end = matchMultiComment(input, pos)) > pos) {
+                        type = TokenType.MULTI_COMMENT;
+                        break;
+                    }
+                    end = matchOperator(input, pos);
+                    type = TokenType.OPERATOR;
+                    break;
+                case '0', '1', '2', '3', '4', '5', '6', '7', '8', '9':
+                    if ((end = matchDecimal(input, pos)) > pos) {
+                        type = TokenType.DECIMAL;
+                        break;
+                    }
+                    end = matchInteger(input, pos);
+                    type = TokenType.INTEGER;
+                    break;
+                case '=':
+                    end = matchAssign(input, pos);
+                    type = TokenType.ASSIGN;
+                    break;
+                case 'a', 'b', 'c', 'd', 'e', 'g', 'h', 'i', 'j', 'k', 'l', 'm', 'n', 'o', 'p', 'q', 'r', 's', 'u', 'v', 'w', 'x', 'y', 'z':
+                    end = matchIdentifier(input, pos);
+                    type = TokenType.IDENTIFIER;
+                    break;
+                case 'f', 't':
+                    if ((end = matchBoolean(input, pos)) > pos) {
+                        type = TokenType.BOOLEAN;
+                        break;
+                    }
+                    end = matchIdentifier(input, pos);
+                    type = TokenType.IDENTIFIER;
+                    break;
+                case '{':
+                    end = matchLbrace(input, pos);
+                    type = TokenType.LBRACE;
+                    break;
+                case '}':
+                    end = matchRbrace(input, pos);
+                    type = TokenType.RBRACE;
+                    break;
+                default:
+                    break;
+            }
+            if (end > pos) {
+                String value = input.substring(pos, end);
+                if (type == TokenType.IDENTIFIER && isKeyword(value)) {
+                    type = TokenType.KEYWORD;
+                }
+                tokens.add(new Token(type, value, pos));
+                pos = end;
+                continue;
+            }
+            if (lineIndex == null) {
+                lineIndex = new LineIndex(input);
+            }
+            errorHandler.addError("Unrecognized token at line " + lineIndex.lineOf(pos) +
+                                  ", column " + lineIndex.columnOf(pos), pos);
+            pos++;
+        }
+        return tokens;
+    }
+
+    private static boolean isKeyword(String value) {
+        switch (value) {
+            case "if", "else", "while", "return", "int", "float", "char", "boolean", "global", "integer", "function", "string":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    // SINGLE_COMMENT: 3 states (4 before minimization)
+    private static int matchSingleComment(String input, int pos) {
+        int length = input.length();
+        int state = 0;
+        int lastAccept = -1;
+        for (int i = pos; i < length; i++) {
+            char c = input.charAt(i);
+            switch (state) {
+                case 0:
+                    switch (c) {
+                        case '/':
+                            state = 1;
+                            break;
+                        default:
+                            return lastAccept;
+                    }
+                    break;
+                case 1:
+                    switch (c) {
+                        case '/':
+                            state = 2;
+                            lastAccept = i + 1;
+                            break;
+                        default:
+                            return lastAccept;
+                    }
+                    break;
+                case 2:
+                    switch (c) {
+                        case ' ', '!', '"', '#', '$', '%', '&', '\'', '(', ')', '*', '+', ',', '-', '.', '/', '0', '1', '2', '3', '4', '5', '6', '7', '8', '9', ':', ';', '<', '=', '>', '?', '@', 'A', 'B', 'C', 'D', 'E', 'F', 'G', 'H', 'I', 'J', 'K', 'L', 'M', 'N', 'O', 'P', 'Q', 'R', 'S', 'T', 'U', 'V', 'W', 'X', 'Y', 'Z', '[', '\\', ']', '^', '_', '`', 'a', 'b', 'c', 'd', 'e', 'f', 'g', 'h', 'i', 'j', 'k', 'l', 'm', 'n', 'o', 'p', 'q', 'r', 's', 't', 'u', 'v', 'w', 'x', 'y', 'z', '{', '|', '}', '~':
+                            state = 2;
+                            lastAccept = i + 1;
+                            break;
+                        default:
+                            return lastAccept;
+                    }
+                    break;
+                default:
+                    return lastAccept;
+            }
+        }
+        return lastAccept;
+    }
+
+    // MULTI_COMMENT: 5 states (7 before minimization)
+    private static int matchMultiComment(String input, int pos) {
+        int length = input.length();
+        int state = 0;
+        int lastAccept = -1;
+        for (int i = pos; i < length; i++) {
+            char c = input.charAt(i);
+            switch (state) {
+                case 0:
+                    switch (c) {
+                        case '/':
+                            state = 1;
+                            break;
+                        default:
+                            return lastAccept;
+                    }
+                    break;
+                case 1:
+                    switch (c) {
+                        case '*':
+                            state = 2;
+                            break;
+                        default:
+                            return lastAccept;
+                    }
+                    break;
+                case 2:
+                    switch (c) {
+                        case '\t', '\n', '\r', ' ', '!', '"', '#', '$', '%', '&', '\'', '(', ')', '+', ',', '-', '.', '/', '0', '1', '2', '3', '4', '5', '6', '7', '8', '9', ':', ';', '<', '=', '>', '?', '@', 'A', 'B', 'C', 'D', 'E', 'F', 'G', 'H', 'I', 'J', 'K', 'L', 'M', 'N', 'O', 'P', 'Q', 'R', 'S', 'T', 'U', 'V', 'W', 'X', 'Y', 'Z', '[', '\\', ']', '^', '_', '`', 'a', 'b', 'c', 'd', 'e', 'f', 'g', 'h', 'i', 'j', 'k', 'l', 'm', 'n', 'o', 'p', 'q', 'r', 's', 't', 'u', 'v', 'w', 'x', 'y', 'z', '{', '|', '}', '~':
+                            state = 2;
+                            break;
+                        case '*':
+                            state = 3;
+                            break;
+                        default:
+                            return lastAccept;
+                    }
+                    break;
+                case 3:
+                    switch (c) {
+                        case '\t', '\n', '\r', ' ', '!', '"', '#', '$', '%', '&', '\'', '(', ')', '+', ',', '-', '.', '0', '1', '2', '3', '4', '5', '6', '7', '8', '9', ':', ';', '<', '=', '>', '?', '@', 'A', 'B', 'C', 'D', 'E', 'F', 'G', 'H', 'I', 'J', 'K', 'L', 'M', 'N', 'O', 'P', 'Q', 'R', 'S', 'T', 'U', 'V', 'W', 'X', 'Y', 'Z', '[', '\\', ']', '^', '_', '`', 'a', 'b', 'c', 'd', 'e', 'f', 'g', 'h', 'i', 'j', 'k', 'l', 'm', 'n', 'o', 'p', 'q', 'r', 's', 't', 'u', 'v', 'w', 'x', 'y', 'z', '{', '|', '}', '~':
+                            state = 2;
+                            break;
+                        case '*':
+                            state = 3;
+                            break;
+                        case '/':
+                            state = 4;
+                            lastAccept = i + 1;
+                            break;
+                        default:
+                            return lastAccept;
+                    }
+                    break;
+                case 4:
+                    return lastAccept;
+                default:
+                    return lastAccept;
+            }
+        }
+        return lastAccept;
+    }
+
+    // STRING: 3 states (4 before minimization)
+    private static int matchString(String input, int pos) {
+        int length = input.length();
+        int state = 0;
+        int lastAccept = -1;
+        for (int i = pos; i < length; i++) {
+            char c = input.charAt(i);
+            switch (state) {
+                case 0:
+                    switch (c) {
+                        case '"':
+                            state = 1;
+                            break;
+                        default:
+                            return lastAccept;
+                    }
+                    break;
+                case 1:
+                    switch (c) {
+                        case ' ', '!', '#', '$', '%', '&', '\'', '(', ')', '*', '+', ',', '-', '.', '/', '0', '1', '2', '3', '4', '5', '6', '7', '8', '9', ':', ';', '<', '=', '>', '?', '@', 'A', 'B', 'C', 'D', 'E', 'F', 'G', 'H', 'I', 'J', 'K', 'L', 'M', 'N', 'O', 'P', 'Q', 'R', 'S', 'T', 'U', 'V', 'W', 'X', 'Y', 'Z', '[', '\\', ']', '^', '_', '`', 'a', 'b', 'c', 'd', 'e', 'f', 'g', 'h', 'i', 'j', 'k', 'l', 'm', 'n', 'o', 'p', 'q', 'r', 's', 't', 'u', 'v', 'w', 'x', 'y', 'z', '{', '|', '}', '~':
+                            state = 1;
+                            break;
+                        case '"':
+                            state = 2;
+                            lastAccept = i + 1;
+                            break;
+                        default:
+                            return lastAccept;
+                    }
+                    break;
+                case 2:
+                    switch (c) {
+                        case ' ', '!', '#', '$', '%', '&', '\'', '(', ')', '*', '+', ',', '-', '.', '/', '0', '1', '2', '3', '4', '5', '6', '7', '8', '9', ':', ';', '<', '=', '>', '?', '@', 'A', 'B', 'C', 'D', 'E', 'F', 'G', 'H', 'I', 'J', 'K', 'L', 'M', 'N', 'O', 'P', 'Q', 'R', 'S', 'T', 'U', 'V', 'W', 'X', 'Y', 'Z', '[', '\\', ']', '^', '_', '`', 'a', 'b', 'c', 'd', 'e', 'f', 'g', 'h', 'i', 'j', 'k', 'l', 'm', 'n', 'o', 'p', 'q', 'r', 's', 't', 'u', 'v', 'w', 'x', 'y', 'z', '{', '|', '}', '~':
+                            state = 1;
+                            break;
+                        case '"':
+                            state = 2;
+                            lastAccept = i + 1;
+                            break;
+                        default:
+                            return lastAccept;
+                    }
+                    break;
+                default:
+                    return lastAccept;
+            }
+        }
+        return lastAccept;
+    }
+
+    // CHAR: 4 states (4 before minimization)
+    private static int matchChar(String input, int pos) {
+        int length = input.length();
+        int state = 0;
+        int lastAccept = -1;
+        for (int i = pos; i < length; i++) {
+            char c = input.charAt(i);
+            switch (state) {
+                case 0:
+                    switch (c) {
+                        case '\'':
+                            state = 1;
+                            break;
+                        default:
+                            return lastAccept;
+                    }
+                    break;
+                case 1:
+                    switch (c) {
+                        case ' ', '!', '"', '#', '$', '%', '&', '\'', '(', ')', '*', '+', ',', '-', '.', '/', '0', '1', '2', '3', '4', '5', '6', '7', '8', '9', ':', ';', '<', '=', '>', '?', '@', 'A', 'B', 'C', 'D', 'E', 'F', 'G', 'H', 'I', 'J', 'K', 'L', 'M', 'N', 'O', 'P', 'Q', 'R', 'S', 'T', 'U', 'V', 'W', 'X', 'Y', 'Z', '[', '\\', ']', '^', '_', '`', 'a', 'b', 'c', 'd', 'e', 'f', 'g', 'h', 'i', 'j', 'k', 'l', 'm', 'n', 'o', 'p', 'q', 'r', 's', 't', 'u', 'v', 'w', 'x', 'y', 'z', '{', '|', '}', '~':
+                            state = 2;
+                            break;
+                        default:
+                            return lastAccept;
+                    }
+                    break;
+                case 2:
+                    switch (c) {
+                        case '\'':
+                            state = 3;
+                            lastAccept = i + 1;
+                            break;
+                        default:
+                            return lastAccept;
+                    }
+                    break;
+                case 3:
+                    return lastAccept;
+                default:
+                    return lastAccept;
+            }
+        }
+        return lastAccept;
+    }
+
+    // BOOLEAN: 8 states (10 before minimization)
+    private static int matchBoolean(String input, int pos) {
+        int length = input.length();
+        int state = 0;
+        int lastAccept = -1;
+        for (int i = pos; i < length; i++) {
+            char c = input.charAt(i);
+            switch (state) {
+                case 0:
+                    switch (c) {
+                        case 'f':
+                            state = 1;
+                            break;
+                        case 't':
+                            state = 2;
+                            break;
+                        default:
+                            return lastAccept;
+                    }
+                    break;
+                case 1:
+                    switch (c) {
+                        case 'a':
+                            state = 3;
+                            break;
+                        default:
+                            return lastAccept;
+                    }
+                    break;
+                case 2:
+                    switch (c) {
+                        case 'r':
+                            state = 4;
+                            break;
+                        default:
+                            return lastAccept;
+                    }
+                    break;
+                case 3:
+                    switch (c) {
+                        case 'l':
+                            state = 5;
+                            break;
+                        default:
+                            return lastAccept;
+                    }
+                    break;
+                case 4:
+                    switch (c) {
+                        case 'u':
+                            state = 6;
+                            break;
+                        default:
+                            return lastAccept;
+                    }
+                    break;
+                case 5:
+                    switch (c) {
+                        case 's':
+                            state = 6;
+                            break;
+                        default:
+                            return lastAccept;
+                    }
+                    break;
+                case 6:
+                    switch (c) {
+                        case 'e':
+                            state = 7;
+                            lastAccept = i + 1;
+                            break;
+                        default:
+                            return lastAccept;
+                    }
+                    break;
+                case 7:
+                    return lastAccept;
+                default:
+                    return lastAccept;
+            }
+        }
+        return lastAccept;
+    }
+
+    // DECIMAL: 8 states (62 before minimization)
+    private static int matchDecimal(String input, int pos) {
+        int length = input.length();
+        int state = 0;
+        int lastAccept = -1;
+        for (int i = pos; i < length; i++) {
+            char c = input.charAt(i);
+            switch (state) {
+                case 0:
+                    switch (c) {
+                        case '0', '1', '2', '3', '4', '5', '6', '7', '8', '9':
+                            state = 1;
+                            break;
+                        default:
+                            return lastAccept;
+                    }
+                    break;
+                case 1:
+                    switch (c) {
+                        case '.':
+                            state = 2;
+                            break;
+                        case '0', '1', '2', '3', '4', '5', '6', '7', '8', '9':
+                            state = 1;
+                            break;
+                        default:
+                            return lastAccept;
+                    }
+                    break;
+                case 2:
+                    switch (c) {
+                        case '0', '1', '2', '3', '4', '5', '6', '7', '8', '9':
+                            state = 3;
+                            lastAccept = i + 1;
+                            break;
+                        default:
+                            return lastAccept;
+                    }
+                    break;
+                case 3:
+                    switch (c) {
+                        case '0', '1', '2', '3', '4', '5', '6', '7', '8', '9':
+                            state = 4;
+                            lastAccept = i + 1;
+                            break;
+                        default:
+                            return lastAccept;
+                    }
+                    break;
+                case 4:
+                    switch (c) {
+                        case '0', '1', '2', '3', '4', '5', '6', '7', '8', '9':
+                            state = 5;
+                            lastAccept = i + 1;
+                            break;
+                        default:
+                            return lastAccept;
+                    }
+                    break;
+                case 5:
+                    switch (c) {
+                        case '0', '1', '2', '3', '4', '5', '6', '7', '8', '9':
+                            state = 6;
+                            lastAccept = i + 1;
+                            break;
+                        default:
+                            return lastAccept;
+                    }
+                    break;
+                case 6:
+                    switch (c) {
+                        case '0', '1', '2', '3', '4', '5', '6', '7', '8', '9':
+                            state = 7;
+                            lastAccept = i + 1;
+                            break;
+                        default:
+                            return lastAccept;
+                    }
+                    break;
+                case 7:
+                    return lastAccept;
+                default:
+                    return lastAccept;
+            }
+        }
+        return lastAccept;
+    }
+
+    // INTEGER: 2 states (11 before minimization)
+    private static int matchInteger(String input, int pos) {
+        int length = input.length();
+        int state = 0;
+        int lastAccept = -1;
+        for (int i = pos; i < length; i++) {
+            char c = input.charAt(i);
+            switch (state) {
+                case 0:
+                    switch (c) {
+                        case '0', '1', '2', '3', '4', '5', '6', '7', '8', '9':
+                            state = 1;
+                            lastAccept = i + 1;
+                            break;
+                        default:
+                            return lastAccept;
+                    }
+                    break;
+                case 1:
+                    switch (c) {
+                        case '0', '1', '2', '3', '4', '5', '6', '7', '8', '9':
+                            state = 1;
+                            lastAccept = i + 1;
+                            break;
+                        default:
+                            return lastAccept;
+                    }
+                    break;
+                default:
+                    return lastAccept;
+            }
+        }
+        return lastAccept;
+    }
+
+    // ASSIGN: 2 states (2 before minimization)
+    private static int matchAssign(String input, int pos) {
+        int length = input.length();
+        int state = 0;
+        int lastAccept = -1;
+        for (int i = pos; i < length; i++) {
+            char c = input.charAt(i);
+            switch (state) {
+                case 0:
+                    switch (c) {
+                        case '=':
+                            state = 1;
+                            lastAccept = i + 1;
+                            break;
+                        default:
+                            return lastAccept;
+                    }
+                    break;
+                case 1:
+                    return lastAccept;
+                default:
+                    return lastAccept;
+            }
+        }
+        return lastAccept;
+    }
+
+    // LPAREN: 2 states (2 before minimization)
+    private static int matchLparen(String input, int pos) {
+        int length = input.length();
+        int state = 0;
+        int lastAccept = -1;
+        for (int i = pos; i < length; i++) {
+            char c = input.charAt(i);
+            switch (state) {
+                case 0:
+                    switch (c) {
+                        case '(':
+                            state = 1;
+                            lastAccept = i + 1;
+                            break;
+                        default:
+                            return lastAccept;
+                    }
+                    break;
+                case 1:
+                    return lastAccept;
+                default:
+                    return lastAccept;
+            }
+        }
+        return lastAccept;
+    }
+
+    // RPAREN: 2 states (2 before minimization)
+    private static int matchRparen(String input, int pos) {
+        int length = input.length();
+        int state = 0;
+        int lastAccept = -1;
+        for (int i = pos; i < length; i++) {
+            char c = input.charAt(i);
+            switch (state) {
+                case 0:
+                    switch (c) {
+                        case ')':
+                            state = 1;
+                            lastAccept = i + 1;
+                            break;
+                        default:
+                            return lastAccept;
+                    }
+                    break;
+                case 1:
+                    return lastAccept;
+                default:
+                    return lastAccept;
+            }
+        }
+        return lastAccept;
+    }
+
+    // LBRACE: 2 states (2 before minimization)
+    private static int matchLbrace(String input, int pos) {
+        int length = input.length();
+        int state = 0;
+        int lastAccept = -1;
+        for (int i = pos; i < length; i++) {
+            char c = input.charAt(i);
+            switch (state) {
+                case 0:
+                    switch (c) {
+                        case '{':
+                            state = 1;
+                            lastAccept = i + 1;
+                            break;
+                        default:
+                            return lastAccept;
+                    }
+                    break;
+                case 1:
+                    return lastAccept;
+                default:
+                    return lastAccept;
+            }
+        }
+        return lastAccept;
+    }
+
+    // RBRACE: 2 states (2 before minimization)
+    private static int matchRbrace(String input, int pos) {
+        int length = input.length();
+        int state = 0;
+        int lastAccept = -1;
+        for (int i = pos; i < length; i++) {
+            char c = input.charAt(i);
+            switch (state) {
+                case 0:
+                    switch (c) {
+                        case '}':
+                            state = 1;
+                            lastAccept = i + 1;
+                            break;
+                        default:
+                            return lastAccept;
+                    }
+                    break;
+                case 1:
+                    return lastAccept;
+                default:
+                    return lastAccept;
+            }
+        }
+        return lastAccept;
+    }
+
+    // OPERATOR: 2 states (9 before minimization)
+    private static int matchOperator(String input, int pos) {
+        int length = input.length();
+        int state = 0;
+        int lastAccept = -1;
+        for (int i = pos; i < length; i++) {
+            char c = input.charAt(i);
+            switch (state) {
+                case 0:
+                    switch (c) {
+                        case '%', '*', '+', '-', '/', '<', '>', '^':
+                            state = 1;
+                            lastAccept = i + 1;
+                            break;
+                        default:
+                            return lastAccept;
+                    }
+                    break;
+                case 1:
+                    return lastAccept;
+                default:
+                    return lastAccept;
+            }
+        }
+        return lastAccept;
+    }
+
+    // IDENTIFIER: 2 states (27 before minimization)
+    private static int matchIdentifier(String input, int pos) {
+        int length = input.length();
+        int state = 0;
+        int lastAccept = -1;
+        for (int i = pos; i < length; i++) {
+            char c = input.charAt(i);
+            switch (state) {
+                case 0:
+                    switch (c) {
+                        case 'a', 'b', 'c', 'd', 'e', 'f', 'g', 'h', 'i', 'j', 'k', 'l', 'm', 'n', 'o', 'p', 'q', 'r', 's', 't', 'u', 'v', 'w', 'x', 'y', 'z':
+                            state = 1;
+                            lastAccept = i + 1;
+                            break;
+                        default:
+                            return lastAccept;
+                    }
+                    break;
+                case 1:
+                    switch (c) {
+                        case 'a', 'b', 'c', 'd', 'e', 'f', 'g', 'h', 'i', 'j', 'k', 'l', 'm', 'n', 'o', 'p', 'q', 'r', 's', 't', 'u', 'v', 'w', 'x', 'y', 'z':
+                            state = 1;
+                            lastAccept = i + 1;
+                            break;
+                        default:
+                            return lastAccept;
+                    }
+                    break;
+                default:
+                    return lastAccept;
+            }
+        }
+        return lastAccept;
+    }
+
+}
@@ -0,0 +1,244 @@
+package Compiler;
+
+import java.util.*;
+
+// Builds an IRProgram. It has no parser of its own: SemanticAnalyzer calls it while it
+// walks the program (see SemanticAnalyzer.generateCode()), so lowering follows exactly
+// the grammar, scoping and operand types the analyzer checks, and a program the
+// analyzer accepts always lowers.
+//
+// Layout: global initializers run first, in source order. Function bodies are emitted
+// inline behind a jump, and the program ends with a jump to main (or HALT if there is
+// no main). Every declaration gets its own typed slot, and declarations without an
+// initializer reset their slot to 0 / 0.0 / "" each time they execute.
+public class IRCompiler {
+    private static final CompilerMetrics.Counter INSTRUCTIONS = CompilerMetrics.counter("ir.codeLength");
+
+    private int[] code = new int[256];
+    private int codeLength = 0;
+    private int stackDepth = 0;
+    private int maxStack = 0;
+
+    private final List<Long> intConstants = new ArrayList<>();
+    private final List<Double> floatConstants = new ArrayList<>();
+    private final List<String> stringConstants = new ArrayList<>();
+    private final Map<Object, Integer> constantIndex = new HashMap<>();
+
+    private int intSlots = 0;
+    private int floatSlots = 0;
+    private int stringSlots = 0;
+
+    // Top-level variables in declaration order; a redeclaration takes over the name.
+    private final Map<String, String> globalTypes = new LinkedHashMap<>();
+    private final Map<String, Integer> globalSlots = new LinkedHashMap<>();
+    private int mainStart = -1;
+    private String mainReturnType = null;
+
+    // Gives a new variable of the given type its own slot.
+    int allocateSlot(String type) {
+        if (type.equals("float")) {
+            return floatSlots++;
+        }
+        if (type.equals("string")) {
+            return stringSlots++;
+        }
+        return intSlots++;
+    }
+
+    // Records a top-level variable, so the interpreter can report it by name.
+    void declareGlobal(String name, String type, int slot) {
+        globalTypes.put(name, type);
+        globalSlots.put(name, slot);
+    }
+
+    // Records where main's body starts and what it returns.
+    void setMain(int start, String returnType) {
+        mainStart = start;
+        mainReturnType = returnType;
+    }
+
+    // Current end of the code, i.e. the address of the next instruction.
+    int position() {
+        return codeLength;
+    }
+
+    // Pushes a literal: Long, Double, Boolean, Character or String. A literal the
+    // analyzer could not evaluate (null) only occurs in programs it rejected.
+    void emitConstant(Object constant) {
+        if (constant instanceof Double) {
+            emit(IRProgram.FCONST, floatConstant((Double) constant));
+        } else if (constant instanceof String) {
+            emit(IRProgram.SCONST, stringConstant((String) constant));
+        } else if (constant instanceof Boolean) {
+            emit(IRProgram.ICONST, intConstant((Boolean) constant ? 1 : 0));
+        } else if (constant instanceof Character) {
+            emit(IRProgram.ICONST, intConstant((Character) constant));
+        } else {
+            emit(IRProgram.ICONST, intConstant(constant == null ? 0 : (Long) constant));
+        }
+        push();
+    }
+
+    // Pushes the value a declaration without an initializer starts with.
+    void emitDefault(String type) {
+        if (type.equals("float")) {
+            emitConstant(0.0);
+        } else if (type.equals("string")) {
+            emitConstant("");
+        } else {
+            emitConstant(0L);
+        }
+    }
+
+    void emitLoad(String type, int slot) {
+        if (type.equals("float")) {
+            emit(IRProgram.FLOAD, slot);
+        } else if (type.equals("string")) {
+            emit(IRProgram.SLOAD, slot);
+        } else {
+            emit(IRProgram.ILOAD, slot);
+        }
+        push();
+    }
+
+    void emitStore(String type, int slot) {
+        pop();
+        if (type.equals("float")) {
+            emit(IRProgram.FSTORE, slot);
+        } else if (type.equals("string")) {
+            emit(IRProgram.SSTORE, slot);
+        } else {
+            emit(IRProgram.ISTORE, slot);
+        }
+    }
+
+    // Converts the value on top of the stack from source to target type (the only
+    // implicit conversion is integer -> float widening).
+    void emitConversion(String target, String source) {
+        if (target.equals("float") && source.equals("integer")) {
+            emit(IRProgram.I2F);
+        }
+    }
+
+    void emitNegate(String type) {
+        emit(type.equals("float") ? IRProgram.FNEG : IRProgram.INEG);
+    }
+
+    // Emits a typed binary operation, widening an integer operand when the other is a float.
+    void emitBinary(String op, String left, String right) {
+        pop();
+        if (left.equals("string")) {
+            emit(IRProgram.SCONCAT);
+            return;
+        }
+        boolean isFloat = left.equals("float") || right.equals("float");
+        if (isFloat && !left.equals("float")) {
+            emit(IRProgram.I2F_UNDER);
+        } else if (isFloat && !right.equals("float")) {
+            emit(IRProgram.I2F);
+        }
+        switch (op) {
+            case "+": emit(isFloat ? IRProgram.FADD : IRProgram.IADD); break;
+            case "-": emit(isFloat ? IRProgram.FSUB : IRProgram.ISUB); break;
+            case "*": emit(isFloat ? IRProgram.FMUL : IRProgram.IMUL); break;
+            case "/": emit(isFloat ? IRProgram.FDIV : IRProgram.IDIV); break;
+            case "%": emit(isFloat ? IRProgram.FREM : IRProgram.IREM); break;
+            case "^": emit(isFloat ? IRProgram.FPOW : IRProgram.IPOW); break;
+            case "<": emit(isFloat ? IRProgram.FLT : IRProgram.ILT); break;
+            case ">": emit(isFloat ? IRProgram.FGT : IRProgram.IGT); break;
+            default: throw new RuntimeException("Unknown operator: " + op);
+        }
+    }
+
+    // Returns from a function with the value on top of the stack.
+    void emitReturnValue(String returnType) {
+        pop();
+        if (returnType.equals("float")) {
+            emit(IRProgram.FRET);
+        } else if (returnType.equals("string")) {
+            emit(IRProgram.SRET);
+        } else {
+            emit(IRProgram.IRET);
+        }
+    }
+
+    void emit(int op) {
+        ensureCapacity(1);
+        code[codeLength++] = op;
+    }
+
+    void emit(int op, int operand) {
+        ensureCapacity(2);
+        code[codeLength++] = op;
+        code[codeLength++] = operand;
+    }
+
+    // Emits a jump with a placeholder target and returns the operand's position.
+    int emitJump(int op) {
+        if (op == IRProgram.JMPF) {
+            pop();
+        }
+        emit(op, -1);
+        return codeLength - 1;
+    }
+
+    void patch(int operandPosition, int target) {
+        code[operandPosition] = target;
+    }
+
+    // Ends the program with the jump to main (or HALT) and assembles it.
+    IRProgram finish() {
+        if (mainStart >= 0) {
+            emit(IRProgram.JMP, mainStart);
+        } else {
+            emit(IRProgram.HALT);
+        }
+        long[] ints = new long[intConstants.size()];
+        for (int i = 0; i < ints.length; i++) {
+            ints[i] = intConstants.get(i);
+        }
+        double[] floats = new double[floatConstants.size()];
+        for (int i = 0; i < floats.length; i++) {
+            floats[i] = floatConstants.get(i);
+        }
+        INSTRUCTIONS.add(codeLength);
+        return new IRProgram(Arrays.copyOf(code, codeLength), ints, floats,
+                stringConstants.toArray(new String[0]), intSlots, floatSlots, stringSlots,
+                Math.max(maxStack, 1), mainReturnType, globalTypes, globalSlots);
+    }
+
+    private int intConstant(long value) {
+        return constantIndex.computeIfAbsent(value, k -> {
+            intConstants.add(value);
+            return intConstants.size() - 1;
+        });
+    }
+
+    private int floatConstant(double value) {
+        return constantIndex.computeIfAbsent(value, k -> {
+            floatConstants.add(value);
+            return floatConstants.size() - 1;
+        });
+    }
+
+    private int stringConstant(String value) {
+        return constantIndex.computeIfAbsent(value, k -> {
+            stringConstants.add(value);
+            return stringConstants.size() - 1;
+        });
+    }
+
+    private void ensureCapacity(int extra) {
+        if (codeLength + extra > code.length) {
+            code = Arrays.copyOf(code, code.length * 2);
+        }
+    }
+
+    private void push() {
+        maxStack = Math.max(maxStack, ++stackDepth);
+    }
+
+    private void pop() {
+        stackDepth--;
+    }
+}
@@ -0,0 +1,113 @@
+package Compiler;
+
+import java.util.*;
+
+// Compact stack-based IR for a compiled .ms program. Code is a flat int[] of opcodes,
+// each followed by its operands. Values live in typed slots: long slots hold integer,
+// boolean (0/1) and char values, double slots hold floats, and String slots hold strings.
+public class IRProgram {
+    // Opcodes. Operand counts are listed in OPERANDS.
+    public static final int ICONST = 0;   // pool index -> push long
+    public static final int FCONST = 1;   // pool index -> push double
+    public static final int SCONST = 2;   // pool index -> push string
+    public static final int ILOAD = 3;    // slot
+    public static final int FLOAD = 4;    // slot
+    public static final int SLOAD = 5;    // slot
+    public static final int ISTORE = 6;   // slot
+    public static final int FSTORE = 7;   // slot
+    public static final int SSTORE = 8;   // slot
+    public static final int IADD = 9;
+    public static final int ISUB = 10;
+    public static final int IMUL = 11;
+    public static final int IDIV = 12;
+    public static final int IREM = 13;
+    public static final int IPOW = 14;
+    public static final int INEG = 15;
+    public static final int FADD = 16;
+    public static final int FSUB = 17;
+    public static final int FMUL = 18;
+    public static final int FDIV = 19;
+    public static final int FREM = 20;
+    public static final int FPOW = 21;
+    public static final int FNEG = 22;
+    public static final int I2F = 23;     // converts the top of the stack
+    public static final int ILT = 24;
+    public static final int IGT = 25;
+    public static final int FLT = 26;
+    public static final int FGT = 27;
+    public static final int SCONCAT = 28;
+    public static final int JMP = 29;     // target
+    public static final int JMPF = 30;    // target; pops a boolean and jumps if false
+    public static final int IRET = 31;
+    public static final int FRET = 32;
+    public static final int SRET = 33;
+    public static final int RET = 34;     // return without a value
+    public static final int HALT = 35;
+    public static final int I2F_UNDER = 36; // converts the value just below the top
+
+    static final String[] NAMES = {
+        "ICONST", "FCONST", "SCONST", "ILOAD", "FLOAD", "SLOAD", "ISTORE", "FSTORE", "SSTORE",
+        "IADD", "ISUB", "IMUL", "IDIV", "IREM", "IPOW", "INEG",
+        "FADD", "FSUB", "FMUL", "FDIV", "FREM", "FPOW", "FNEG", "I2F",
+        "ILT", "IGT", "FLT", "FGT", "SCONCAT", "JMP", "JMPF", "IRET", "FRET", "SRET", "RET", "HALT",
+        "I2F_UNDER"
+    };
+    static final int[] OPERANDS = {
+        1, 1, 1, 1, 1, 1, 1, 1, 1,
+        0, 0, 0, 0, 0, 0, 0,
+        0, 0, 0, 0, 0, 0, 0, 0,
+        0, 0, 0, 0, 0, 1, 1, 0, 0, 0, 0, 0,
+        0
+    };
+
+    public final int[] code;
+    public final long[] intConstants;
+    public final double[] floatConstants;
+    public final String[] stringConstants;
+    public final int intSlots;
+    public final int floatSlots;
+    public final int stringSlots;
+    public final int maxStack;
+    public final String returnType; // of main, or null if there is none
+    // Global variables by name: declared type and slot, for reporting results.
+    public final Map<String, String> globalTypes;
+    public final Map<String, Integer> globalSlots;
+
+    public IRProgram(int[] code, long[] intConstants, double[] floatConstants, String[] stringConstants,
+                     int intSlots, int floatSlots, int stringSlots, int maxStack, String returnType,
+                     Map<String, String> globalTypes, Map<String, Integer> globalSlots) {
+        this.code = code;
+        this.intConstants = intConstants;
+        this.floatConstants = floatConstants;
+        this.stringConstants = stringConstants;
+        this.intSlots = intSlots;
+        this.floatSlots = floatSlots;
+        this.stringSlots = stringSlots;
+        this.maxStack = maxStack;
+        this.returnType = returnType;
+        this.globalTypes = globalTypes;
+        this.globalSlots = globalSlots;
+    }
+
+    // Human-readable listing of the code, one instruction per line.
+    public String disassemble() {
+        StringBuilder out = new StringBuilder();
+        for (int pc = 0; pc < code.length; pc += 1 + OPERANDS[code[pc]]) {
+            int op = code[pc];
+            out.append(String.format("%4d  %-8s", pc, NAMES[op]));
+            if (OPERANDS[op] > 0) {
+                int operand = code[pc + 1];
+                out.append(operand);
+                if (op == ICONST) {
+                    out.append("  (").append(intConstants[operand]).append(')');
+                } else if (op == FCONST) {
+                    out.append("  (").append(floatConstants[operand]).append(')');
+                } else if (op == SCONST) {
+                    out.append("  (\"").append(stringConstants[operand]).append("\")");
+                }
+            }
+            out.append('\n');
+        }
+        return out.toString();
+    }
+}
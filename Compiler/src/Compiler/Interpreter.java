@@ -0,0 +1,237 @@
+package Compiler;
+
+// Executes an IRProgram with a switch-dispatch loop. Numeric values travel on one
+// long[] operand stack (floats as raw double bits), strings on a parallel String[] stack,
+// and variables live in primitive-typed slot arrays.
+public class Interpreter {
+    private static final CompilerMetrics.Timer RUN_TIMER = CompilerMetrics.timer("interpret");
+    private static final CompilerMetrics.Counter EXECUTED = CompilerMetrics.counter("interpreter.instructions");
+
+    private final IRProgram program;
+    private long[] intSlots;
+    private double[] floatSlots;
+    private String[] stringSlots;
+    private long instructionCount;
+
+    public Interpreter(IRProgram program) {
+        this.program = program;
+    }
+
+    // Runs the program and returns main's result (Long, Double, Boolean, Character,
+    // String), or null if main returns nothing or there is no main.
+    public Object run() {
+        try (CompilerMetrics.Phase phase = RUN_TIMER.start()) {
+            try {
+                return execute();
+            } finally {
+                EXECUTED.add(instructionCount);
+                phase.setWork(0, instructionCount);
+            }
+        }
+    }
+
+    private Object execute() {
+        final int[] code = program.code;
+        final long[] intConstants = program.intConstants;
+        final double[] floatConstants = program.floatConstants;
+        final String[] stringConstants = program.stringConstants;
+        final long[] ints = new long[program.intSlots];
+        final double[] floats = new double[program.floatSlots];
+        final String[] strings = new String[program.stringSlots];
+        final long[] stack = new long[program.maxStack];
+        final String[] stringStack = new String[program.maxStack];
+        intSlots = ints;
+        floatSlots = floats;
+        stringSlots = strings;
+
+        int sp = 0;
+        int ssp = 0;
+        int pc = 0;
+        long executed = 0;
+        try {
+            while (true) {
+                executed++;
+                switch (code[pc++]) {
+                    case IRProgram.ICONST:
+                        stack[sp++] = intConstants[code[pc++]];
+                        break;
+                    case IRProgram.FCONST:
+                        stack[sp++] = Double.doubleToRawLongBits(floatConstants[code[pc++]]);
+                        break;
+                    case IRProgram.SCONST:
+                        stringStack[ssp++] = stringConstants[code[pc++]];
+                        break;
+                    case IRProgram.ILOAD:
+                        stack[sp++] = ints[code[pc++]];
+                        break;
+                    case IRProgram.FLOAD:
+                        stack[sp++] = Double.doubleToRawLongBits(floats[code[pc++]]);
+                        break;
+                    case IRProgram.SLOAD:
+                        stringStack[ssp++] = strings[code[pc++]];
+                        break;
+                    case IRProgram.ISTORE:
+                        ints[code[pc++]] = stack[--sp];
+                        break;
+                    case IRProgram.FSTORE:
+                        floats[code[pc++]] = Double.longBitsToDouble(stack[--sp]);
+                        break;
+                    case IRProgram.SSTORE:
+                        strings[code[pc++]] = stringStack[--ssp];
+                        break;
+                    case IRProgram.IADD:
+                        sp--;
+                        stack[sp - 1] += stack[sp];
+                        break;
+                    case IRProgram.ISUB:
+                        sp--;
+                        stack[sp - 1] -= stack[sp];
+                        break;
+                    case IRProgram.IMUL:
+                        sp--;
+                        stack[sp - 1] *= stack[sp];
+                        break;
+                    case IRProgram.IDIV:
+                        sp--;
+                        stack[sp - 1] /= stack[sp];
+                        break;
+                    case IRProgram.IREM:
+                        sp--;
+                        stack[sp - 1] %= stack[sp];
+                        break;
+                    case IRProgram.IPOW:
+                        sp--;
+                        stack[sp - 1] = power(stack[sp - 1], stack[sp]);
+                        break;
+                    case IRProgram.INEG:
+                        stack[sp - 1] = -stack[sp - 1];
+                        break;
+                    case IRProgram.FADD:
+                        sp--;
+                        stack[sp - 1] = Double.doubleToRawLongBits(
+                                Double.longBitsToDouble(stack[sp - 1]) + Double.longBitsToDouble(stack[sp]));
+                        break;
+                    case IRProgram.FSUB:
+                        sp--;
+                        stack[sp - 1] = Double.doubleToRawLongBits(
+                                Double.longBitsToDouble(stack[sp - 1]) - Double.longBitsToDouble(stack[sp]));
+                        break;
+                    case IRProgram.FMUL:
+                        sp--;
+                        stack[sp - 1] = Double.doubleToRawLongBits(
+                                Double.longBitsToDouble(stack[sp - 1]) * Double.longBitsToDouble(stack[sp]));
+                        break;
+                    case IRProgram.FDIV:
+                        sp--;
+                        stack[sp - 1] = Double.doubleToRawLongBits(
+                                Double.longBitsToDouble(stack[sp - 1]) / Double.longBitsToDouble(stack[sp]));
+                        break;
+                    case IRProgram.FREM:
+                        sp--;
+                        stack[sp - 1] = Double.doubleToRawLongBits(
+                                Double.longBitsToDouble(stack[sp - 1]) % Double.longBitsToDouble(stack[sp]));
+                        break;
+                    case IRProgram.FPOW:
+                        sp--;
+                        stack[sp - 1] = Double.doubleToRawLongBits(
+                                Math.pow(Double.longBitsToDouble(stack[sp - 1]), Double.longBitsToDouble(stack[sp])));
+                        break;
+                    case IRProgram.FNEG:
+                        stack[sp - 1] = Double.doubleToRawLongBits(-Double.longBitsToDouble(stack[sp - 1]));
+                        break;
+                    case IRProgram.I2F:
+                        stack[sp - 1] = Double.doubleToRawLongBits((double) stack[sp - 1]);
+                        break;
+                    case IRProgram.I2F_UNDER:
+                        stack[sp - 2] = Double.doubleToRawLongBits((double) stack[sp - 2]);
+                        break;
+                    case IRProgram.ILT:
+                        sp--;
+                        stack[sp - 1] = stack[sp - 1] < stack[sp] ? 1 : 0;
+                        break;
+                    case IRProgram.IGT:
+                        sp--;
+                        stack[sp - 1] = stack[sp - 1] > stack[sp] ? 1 : 0;
+                        break;
+                    case IRProgram.FLT:
+                        sp--;
+                        stack[sp - 1] = Double.longBitsToDouble(stack[sp - 1]) < Double.longBitsToDouble(stack[sp]) ? 1 : 0;
+                        break;
+                    case IRProgram.FGT:
+                        sp--;
+                        stack[sp - 1] = Double.longBitsToDouble(stack[sp - 1]) > Double.longBitsToDouble(stack[sp]) ? 1 : 0;
+                        break;
+                    case IRProgram.SCONCAT:
+                        ssp--;
+                        stringStack[ssp - 1] = stringStack[ssp - 1] + stringStack[ssp];
+                        break;
+                    case IRProgram.JMP:
+                        pc = code[pc];
+                        break;
+                    case IRProgram.JMPF:
+                        pc = stack[--sp] == 0 ? code[pc] : pc + 1;
+                        break;
+                    case IRProgram.IRET:
+                        return boxResult(stack[--sp]);
+                    case IRProgram.FRET:
+                        return Double.longBitsToDouble(stack[--sp]);
+                    case IRProgram.SRET:
+                        return stringStack[--ssp];
+                    case IRProgram.RET:
+                    case IRProgram.HALT:
+                        return null;
+                    default:
+                        throw new RuntimeException("Invalid opcode " + code[pc - 1] + " at " + (pc - 1));
+                }
+            }
+        } catch (ArithmeticException e) {
+            throw new RuntimeException("Runtime error: " + e.getMessage(), e);
+        } finally {
+            instructionCount = executed;
+        }
+    }
+
+    // Number of instructions executed by the last run.
+    public long getInstructionCount() {
+        return instructionCount;
+    }
+
+    // Value of a global variable after run(), boxed according to its declared type.
+    public Object getGlobal(String name) {
+        String type = program.globalTypes.get(name);
+        if (type == null || intSlots == null) {
+            return null;
+        }
+        int slot = program.globalSlots.get(name);
+        switch (type) {
+            case "float": return floatSlots[slot];
+            case "string": return stringSlots[slot];
+            case "boolean": return intSlots[slot] != 0;
+            case "char": return (char) intSlots[slot];
+            default: return intSlots[slot];
+        }
+    }
+
+    private Object boxResult(long value) {
+        if ("boolean".equals(program.returnType)) {
+            return value != 0;
+        }
+        if ("char".equals(program.returnType)) {
+            return (char) value;
+        }
+        return value;
+    }
+
+    private static long power(long base, long exponent) {
+        if (exponent < 0) {
+            return (long) Math.pow(base, exponent);
+        }
+        long result = 1;
+        for (; exponent > 0; exponent >>= 1, base *= base) {
+            if ((exponent & 1) != 0) {
+                result *= base;
+            }
+        }
+        return result;
+    }
+}
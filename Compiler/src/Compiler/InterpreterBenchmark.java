@@ -0,0 +1,78 @@
+package Compiler;
+
+// Measures the IR interpreter on a hot while loop and compares it with the same loop
+// written directly in Java, which is the ceiling a JIT-compiled backend could reach.
+// Usage: InterpreterBenchmark [iterations] [runs]
+public class InterpreterBenchmark {
+
+    public static void main(String[] args) {
+        long iterations = args.length > 0 ? Long.parseLong(args[0]) : 10_000_000L;
+        int runs = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        String source =
+                "global integer limit = " + iterations + "\n" +
+                "function integer main() {\n" +
+                "    integer i = 0\n" +
+                "    integer acc = 0\n" +
+                "    float avg = 0.0\n" +
+                "    while (i < limit) {\n" +
+                "        acc = acc + i % 7 * 3\n" +
+                "        avg = avg + acc / 2.5\n" +
+                "        i = i + 1\n" +
+                "    }\n" +
+                "    return acc\n" +
+                "}\n";
+
+        Lexer lexer = new Lexer(source);
+        lexer.tokenize();
+        SemanticAnalyzer analyzer = new SemanticAnalyzer(lexer.getTokens(), lexer.getSymbolTable(),
+                                                         lexer.getErrorHandler(), lexer.getLineIndex());
+        analyzer.generateCode();
+        analyzer.analyze();
+        if (lexer.getErrorHandler().hasErrors()) {
+            lexer.getErrorHandler().displayErrors();
+            return;
+        }
+        IRProgram program = analyzer.getProgram();
+
+        long interpreted = Long.MAX_VALUE;
+        long direct = Long.MAX_VALUE;
+        Object interpretedResult = null;
+        long directResult = 0;
+        long instructions = 0;
+        for (int run = 0; run < runs; run++) {
+            Interpreter interpreter = new Interpreter(program);
+            long start = System.nanoTime();
+            interpretedResult = interpreter.run();
+            interpreted = Math.min(interpreted, System.nanoTime() - start);
+            instructions = interpreter.getInstructionCount();
+
+            start = System.nanoTime();
+            directResult = directLoop(iterations);
+            direct = Math.min(direct, System.nanoTime() - start);
+        }
+        if (!Long.valueOf(directResult).equals(interpretedResult)) {
+            System.err.println("Interpreter result " + interpretedResult + " differs from " + directResult);
+            return;
+        }
+        System.out.printf("Loop iterations: %d, IR instructions executed: %d%n", iterations, instructions);
+        System.out.printf("IR interpreter: %.3f ms (%.1f M instructions/s)%n",
+                interpreted / 1e6, instructions / (interpreted / 1e3));
+        System.out.printf("Direct Java:    %.3f ms%n", direct / 1e6);
+        System.out.printf("Interpreter overhead: %.1fx%n", (double) interpreted / direct);
+    }
+
+    // The benchmark program, hand-translated.
+    private static long directLoop(long limit) {
+        long i = 0;
+        long acc = 0;
+        double avg = 0.0;
+        while (i < limit) {
+            acc = acc + i % 7 * 3;
+            avg = avg + acc / 2.5;
+            i = i + 1;
+        }
+        // Keep avg alive so the JIT cannot drop the float work.
+        return avg < 0 ? -1 : acc;
+    }
+}
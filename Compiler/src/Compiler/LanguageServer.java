@@ -0,0 +1,622 @@
+package Compiler;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+// Language Server Protocol backend for .ms files, speaking JSON-RPC over stdin/stdout.
+// Serves semantic tokens (full, delta and range), go-to-definition, hover (the type,
+// scope and folded value of the declaration an identifier resolves to, plus its memory
+// location from the symbol table, or a literal's type and value) and
+// diagnostics from the ErrorHandler.
+//
+// Open files live in memory as SourceDocuments, kept in sync incrementally. A reader
+// thread only frames messages; all document state is touched by the main loop alone.
+// Token-level requests never wait for analysis. Diagnostics are published once the
+// client has been quiet for DIAGNOSTICS_DELAY_MS, so a burst of keystrokes costs one
+// analysis rather than one per change.
+// Usage: LanguageServer  (started by the editor; logs go to stderr)
+public class LanguageServer {
+    // Semantic token legend; the encoded data refers to these by index.
+    static final List<String> TOKEN_TYPES = List.of(
+        "keyword", "variable", "function", "number", "string", "operator", "comment");
+    static final List<String> TOKEN_MODIFIERS = List.of("declaration");
+    private static final int TYPE_KEYWORD = 0;
+    private static final int TYPE_VARIABLE = 1;
+    private static final int TYPE_FUNCTION = 2;
+    private static final int TYPE_NUMBER = 3;
+    private static final int TYPE_STRING = 4;
+    private static final int TYPE_OPERATOR = 5;
+    private static final int TYPE_COMMENT = 6;
+    private static final int MODIFIER_DECLARATION = 1; // modifier bit
+
+    private static final long DIAGNOSTICS_DELAY_MS = 150;
+    private static final int WARMUP_ROUNDS = 200;
+    private static final int PARSE_ERROR = -32700;
+    private static final int INVALID_REQUEST = -32600;
+    private static final int METHOD_NOT_FOUND = -32601;
+    private static final int INTERNAL_ERROR = -32603;
+    private static final Object END_OF_INPUT = new Object();
+
+    private static final CompilerMetrics.Timer EDIT_TIMER = CompilerMetrics.timer("lsp.edit");
+    private static final CompilerMetrics.Timer REQUEST_TIMER = CompilerMetrics.timer("lsp.request");
+
+    // Semantic tokens last sent for a document, the base for delta requests.
+    private static class TokensResult {
+        final String resultId;
+        final int[] data;
+
+        TokensResult(String resultId, int[] data) {
+            this.resultId = resultId;
+            this.data = data;
+        }
+    }
+
+    private final Map<TokenType, DFA> tokenDFAs;
+    private final OutputStream out;
+    private final Map<String, SourceDocument> documents = new HashMap<>();
+    private final Map<String, TokensResult> sentTokens = new HashMap<>();
+    private final Set<String> staleDiagnostics = new LinkedHashSet<>();
+    private long nextResultId = 1;
+    private boolean shutdownRequested = false;
+
+    public LanguageServer(OutputStream out) {
+        this.out = out;
+        this.tokenDFAs = new Lexer("").getTokenDFAs();
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        LanguageServer server = new LanguageServer(new BufferedOutputStream(System.out, 1 << 16));
+        server.warmUp();
+        System.exit(server.run(new BufferedInputStream(System.in, 1 << 16)));
+    }
+
+    // Edits, encodes and analyzes a small program so the first requests hit compiled code.
+    void warmUp() {
+        String sample = CompilerDaemon.WARMUP_SAMPLE;
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            SourceDocument document = new SourceDocument(sample, 0, tokenDFAs);
+            int middle = sample.length() / 2;
+            document.edit(middle, middle + 1, sample.substring(middle, middle + 1), 1);
+            Json.parse(Json.write(encode(document, 0, document.getTokens().size())));
+            document.declarationOffset(document.getTokens().get(0).offset);
+            document.getErrorHandler();
+        }
+    }
+
+    // Serves until "exit" or end of input; returns the process exit status.
+    public int run(InputStream in) throws InterruptedException {
+        BlockingQueue<Object> inbox = new LinkedBlockingQueue<>();
+        Thread reader = new Thread(() -> {
+            try {
+                for (String body = readMessage(in); body != null; body = readMessage(in)) {
+                    inbox.add(body);
+                }
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Error reading from client: " + e.getMessage());
+            } finally {
+                // Always wake the main loop, which otherwise waits in take() forever.
+                inbox.add(END_OF_INPUT);
+            }
+        }, "lsp-reader");
+        reader.setDaemon(true);
+        reader.start();
+        while (true) {
+            Object message = staleDiagnostics.isEmpty()
+                    ? inbox.take() : inbox.poll(DIAGNOSTICS_DELAY_MS, TimeUnit.MILLISECONDS);
+            if (message == null) {
+                publishDiagnostics();
+            } else if (message == END_OF_INPUT) {
+                return 1;
+            } else if (!handle((String) message)) {
+                return shutdownRequested ? 0 : 1;
+            }
+        }
+    }
+
+    // Reads one Content-Length framed message body; null at end of input.
+    static String readMessage(InputStream in) throws IOException {
+        int length = -1;
+        StringBuilder header = new StringBuilder();
+        while (true) {
+            int c = in.read();
+            if (c == -1) {
+                return null;
+            }
+            if (c != '\n') {
+                if (c != '\r') {
+                    header.append((char) c);
+                }
+                continue;
+            }
+            if (header.length() == 0) {
+                break;
+            }
+            String line = header.toString();
+            if (line.regionMatches(true, 0, "Content-Length:", 0, "Content-Length:".length())) {
+                String value = line.substring("Content-Length:".length()).trim();
+                try {
+                    length = Integer.parseInt(value);
+                } catch (NumberFormatException e) {
+                    // The framing is lost, so there is no next message to skip to.
+                    throw new IOException("Malformed Content-Length header: '" + value + "'");
+                }
+            }
+            header.setLength(0);
+        }
+        if (length < 0) {
+            throw new IOException("Message without a Content-Length header");
+        }
+        byte[] body = in.readNBytes(length);
+        if (body.length < length) {
+            return null;
+        }
+        return new String(body, StandardCharsets.UTF_8);
+    }
+
+    // Handles one message; returns false after "exit".
+    boolean handle(String body) {
+        Map<String, Object> message;
+        try {
+            message = Json.object(Json.parse(body));
+        } catch (IllegalArgumentException e) {
+            sendError(null, PARSE_ERROR, e.getMessage());
+            return true;
+        }
+        Object id = message.get("id");
+        Object method = message.get("method");
+        if (!(method instanceof String)) {
+            if (id != null && !message.containsKey("result") && !message.containsKey("error")) {
+                sendError(id, INVALID_REQUEST, "Missing method");
+            }
+            return true; // otherwise a response; the server sends no requests of its own
+        }
+        Map<String, Object> params = Json.object(message.get("params"));
+        try (CompilerMetrics.Phase phase = REQUEST_TIMER.start()) {
+            phase.setWork(body.length(), 1);
+            Object result;
+            switch ((String) method) {
+                case "initialize":
+                    result = initialize();
+                    break;
+                case "shutdown":
+                    shutdownRequested = true;
+                    result = null;
+                    break;
+                case "exit":
+                    return false;
+                case "textDocument/didOpen":
+                    didOpen(params);
+                    return true;
+                case "textDocument/didChange":
+                    didChange(params);
+                    return true;
+                case "textDocument/didClose":
+                    didClose(params);
+                    return true;
+                case "textDocument/semanticTokens/full":
+                    result = semanticTokensFull(params);
+                    break;
+                case "textDocument/semanticTokens/full/delta":
+                    result = semanticTokensDelta(params);
+                    break;
+                case "textDocument/semanticTokens/range":
+                    result = semanticTokensRange(params);
+                    break;
+                case "textDocument/definition":
+                    result = definition(params);
+                    break;
+                case "textDocument/hover":
+                    result = hover(params);
+                    break;
+                default:
+                    // Unknown notifications ("initialized", "$/cancelRequest", ...) are ignored
+                    if (id != null) {
+                        sendError(id, METHOD_NOT_FOUND, "Unsupported method " + method);
+                    }
+                    return true;
+            }
+            if (id != null) {
+                sendResult(id, result);
+            }
+        } catch (RuntimeException e) {
+            if (id != null) {
+                sendError(id, INTERNAL_ERROR, e.toString());
+            } else {
+                System.err.println("Error handling " + method + ": " + e);
+            }
+        }
+        return true;
+    }
+
+    private Map<String, Object> initialize() {
+        Map<String, Object> sync = new LinkedHashMap<>();
+        sync.put("openClose", true);
+        sync.put("change", 2); // incremental
+        Map<String, Object> legend = new LinkedHashMap<>();
+        legend.put("tokenTypes", TOKEN_TYPES);
+        legend.put("tokenModifiers", TOKEN_MODIFIERS);
+        Map<String, Object> semanticTokens = new LinkedHashMap<>();
+        semanticTokens.put("legend", legend);
+        semanticTokens.put("range", true);
+        semanticTokens.put("full", Map.of("delta", true));
+        Map<String, Object> capabilities = new LinkedHashMap<>();
+        capabilities.put("positionEncoding", "utf-16");
+        capabilities.put("textDocumentSync", sync);
+        capabilities.put("semanticTokensProvider", semanticTokens);
+        capabilities.put("definitionProvider", true);
+        capabilities.put("hoverProvider", true);
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("capabilities", capabilities);
+        result.put("serverInfo", Map.of("name", "ms-language-server"));
+        return result;
+    }
+
+    private void didOpen(Map<String, Object> params) {
+        Map<String, Object> item = Json.object(params.get("textDocument"));
+        String uri = (String) item.get("uri");
+        try (CompilerMetrics.Phase phase = EDIT_TIMER.start()) {
+            SourceDocument document = new SourceDocument((String) item.get("text"),
+                                                         Json.intValue(item.get("version")), tokenDFAs);
+            documents.put(uri, document);
+            phase.setWork(document.getText().length(), document.getTokens().size());
+        }
+        sentTokens.remove(uri);
+        staleDiagnostics.add(uri);
+    }
+
+    private void didChange(Map<String, Object> params) {
+        Map<String, Object> identifier = Json.object(params.get("textDocument"));
+        String uri = (String) identifier.get("uri");
+        SourceDocument document = document(uri);
+        int version = Json.intValue(identifier.get("version"));
+        try (CompilerMetrics.Phase phase = EDIT_TIMER.start()) {
+            long inserted = 0;
+            for (Object change : (List<?>) params.get("contentChanges")) {
+                Map<String, Object> edit = Json.object(change);
+                String text = (String) edit.get("text");
+                inserted += text.length();
+                if (edit.containsKey("range")) {
+                    Map<String, Object> range = Json.object(edit.get("range"));
+                    document.edit(offset(document, range.get("start")), offset(document, range.get("end")),
+                                  text, version);
+                } else {
+                    document.edit(0, document.getText().length(), text, version);
+                }
+            }
+            phase.setWork(inserted, document.getTokens().size());
+        }
+        staleDiagnostics.add(uri);
+    }
+
+    private void didClose(Map<String, Object> params) {
+        String uri = (String) Json.object(params.get("textDocument")).get("uri");
+        documents.remove(uri);
+        sentTokens.remove(uri);
+        staleDiagnostics.remove(uri);
+        // Clear what was shown for the file
+        Map<String, Object> cleared = new LinkedHashMap<>();
+        cleared.put("uri", uri);
+        cleared.put("diagnostics", List.of());
+        sendNotification("textDocument/publishDiagnostics", cleared);
+    }
+
+    private Map<String, Object> semanticTokensFull(Map<String, Object> params) {
+        String uri = uri(params);
+        SourceDocument document = document(uri);
+        TokensResult sent = new TokensResult(String.valueOf(nextResultId++),
+                                             encode(document, 0, document.getTokens().size()));
+        sentTokens.put(uri, sent);
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("resultId", sent.resultId);
+        result.put("data", sent.data);
+        return result;
+    }
+
+    // Sends one edit replacing the span between the common prefix and suffix of the
+    // previous and current data; an edit in one place leaves the rest of the relative
+    // encoding unchanged, so the edit stays small.
+    private Map<String, Object> semanticTokensDelta(Map<String, Object> params) {
+        String uri = uri(params);
+        TokensResult previous = sentTokens.get(uri);
+        if (previous == null || !previous.resultId.equals(params.get("previousResultId"))) {
+            return semanticTokensFull(params);
+        }
+        SourceDocument document = document(uri);
+        int[] data = encode(document, 0, document.getTokens().size());
+        int[] old = previous.data;
+        int prefix = 0;
+        int limit = Math.min(old.length, data.length);
+        while (prefix < limit && old[prefix] == data[prefix]) {
+            prefix++;
+        }
+        int suffix = 0;
+        while (suffix < limit - prefix && old[old.length - 1 - suffix] == data[data.length - 1 - suffix]) {
+            suffix++;
+        }
+        TokensResult sent = new TokensResult(String.valueOf(nextResultId++), data);
+        sentTokens.put(uri, sent);
+        List<Object> edits = new ArrayList<>();
+        if (prefix + suffix < Math.max(old.length, data.length)) {
+            Map<String, Object> edit = new LinkedHashMap<>();
+            edit.put("start", prefix);
+            edit.put("deleteCount", old.length - prefix - suffix);
+            edit.put("data", Arrays.copyOfRange(data, prefix, data.length - suffix));
+            edits.add(edit);
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("resultId", sent.resultId);
+        result.put("edits", edits);
+        return result;
+    }
+
+    private Map<String, Object> semanticTokensRange(Map<String, Object> params) {
+        SourceDocument document = document(uri(params));
+        Map<String, Object> range = Json.object(params.get("range"));
+        int from = document.firstTokenEndingAfter(offset(document, range.get("start")));
+        int to = document.firstTokenAtOrAfter(offset(document, range.get("end")));
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("data", encode(document, from, Math.max(from, to)));
+        return result;
+    }
+
+    // Relative encoding of tokens [from, to): per token, line delta, start delta (from
+    // the previous token on the same line), length, type and modifier bits. Tokens that
+    // span lines (multi-line comments) are split per line, as clients expect by default.
+    private int[] encode(SourceDocument document, int from, int to) {
+        List<Token> tokens = document.getTokens();
+        LineIndex lines = document.getLineIndex();
+        int[] data = new int[Math.max(16, (to - from) * 5)];
+        int size = 0;
+        int previousLine = 0;
+        int previousStart = 0;
+        for (int i = from; i < to; i++) {
+            Token token = tokens.get(i);
+            int type = semanticType(tokens, i);
+            if (type < 0) {
+                continue;
+            }
+            int modifiers = isDeclaration(tokens, i) ? MODIFIER_DECLARATION : 0;
+            int start = token.offset;
+            int end = SourceDocument.end(token);
+            for (int line = lines.lineOf(start) - 1; start < end; line++) {
+                int lineStart = lines.lineStart(line + 1);
+                int segmentEnd = Math.min(end, document.lineEnd(line));
+                if (segmentEnd > start) {
+                    if (size + 5 > data.length) {
+                        data = Arrays.copyOf(data, data.length * 2);
+                    }
+                    int character = start - lineStart;
+                    data[size++] = line - previousLine;
+                    data[size++] = line == previousLine ? character - previousStart : character;
+                    data[size++] = segmentEnd - start;
+                    data[size++] = type;
+                    data[size++] = modifiers;
+                    previousLine = line;
+                    previousStart = character;
+                }
+                start = document.lineEnd(line) + 1;
+            }
+        }
+        return Arrays.copyOf(data, size);
+    }
+
+    // Legend index for a token, or -1 for punctuation, which is left to the editor.
+    private static int semanticType(List<Token> tokens, int index) {
+        switch (tokens.get(index).type) {
+            case KEYWORD:
+            case BOOLEAN:
+                return TYPE_KEYWORD;
+            case IDENTIFIER:
+                return isFunctionName(tokens, index) ? TYPE_FUNCTION : TYPE_VARIABLE;
+            case INTEGER:
+            case DECIMAL:
+                return TYPE_NUMBER;
+            case CHAR:
+            case STRING:
+                return TYPE_STRING;
+            case OPERATOR:
+            case ASSIGN:
+                return TYPE_OPERATOR;
+            case SINGLE_COMMENT:
+            case MULTI_COMMENT:
+                return TYPE_COMMENT;
+            default:
+                return -1;
+        }
+    }
+
+    // "function name" or "function type name"; the only place function names appear.
+    private static boolean isFunctionName(List<Token> tokens, int index) {
+        int previous = previousCode(tokens, index);
+        if (previous >= 0 && tokens.get(previous).value.equals("function")) {
+            return true;
+        }
+        if (previous < 0 || tokens.get(previous).type != TokenType.KEYWORD) {
+            return false;
+        }
+        int before = previousCode(tokens, previous);
+        return before >= 0 && tokens.get(before).value.equals("function");
+    }
+
+    private static boolean isDeclaration(List<Token> tokens, int index) {
+        if (tokens.get(index).type != TokenType.IDENTIFIER) {
+            return false;
+        }
+        int previous = previousCode(tokens, index);
+        return isFunctionName(tokens, index)
+                || (previous >= 0 && Lexer.DATA_TYPES.contains(tokens.get(previous).value));
+    }
+
+    // Index of the closest preceding token that is not a comment, or -1.
+    private static int previousCode(List<Token> tokens, int index) {
+        for (int i = index - 1; i >= 0; i--) {
+            TokenType type = tokens.get(i).type;
+            if (type != TokenType.SINGLE_COMMENT && type != TokenType.MULTI_COMMENT) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private Object definition(Map<String, Object> params) {
+        String uri = uri(params);
+        SourceDocument document = document(uri);
+        int index = document.tokenIndexAt(offset(document, params.get("position")));
+        if (index < 0 || document.getTokens().get(index).type != TokenType.IDENTIFIER) {
+            return null;
+        }
+        int declaration = document.declarationOffset(document.getTokens().get(index).offset);
+        if (declaration < 0) {
+            return null;
+        }
+        Token target = document.getTokens().get(document.tokenIndexAt(declaration));
+        Map<String, Object> location = new LinkedHashMap<>();
+        location.put("uri", uri);
+        location.put("range", range(document, target.offset, SourceDocument.end(target)));
+        return location;
+    }
+
+    private Object hover(Map<String, Object> params) {
+        SourceDocument document = document(uri(params));
+        int index = document.tokenIndexAt(offset(document, params.get("position")));
+        if (index < 0) {
+            return null;
+        }
+        Token token = document.getTokens().get(index);
+        String text;
+        switch (token.type) {
+            case IDENTIFIER: {
+                // Describe the declaration this use resolves to, like definition does, so a
+                // local that shadows a global shows the local
+                int declaration = document.declarationOffset(token.offset);
+                SemanticAnalyzer.Declaration declared = declaration < 0 ? null : document.declarationAt(declaration);
+                if (declared == null) {
+                    return null;
+                }
+                // The symbol table is flat and keeps a name's first declaration
+                SymbolTable.SymbolEntry entry = document.getSymbolTable().getSymbol(token.value);
+                boolean described = declared.first && entry != null && entry.dataType.equals(declared.type);
+                text = "```\n" + declared.type + " " + declared.name + "\n```\n" + "Scope: " + declared.scope
+                        + (described ? "  \nMemory location: " + entry.memoryLocation : "")
+                        + (declared.value == null ? "" : "  \nValue: `" + declared.value + "`");
+                break;
+            }
+            case INTEGER: text = "integer literal `" + token.value + "`"; break;
+            case DECIMAL: text = "float literal `" + token.value + "`"; break;
+            case BOOLEAN: text = "boolean literal `" + token.value + "`"; break;
+            case CHAR: text = "char literal `" + token.value + "`"; break;
+            case STRING: text = "string literal `" + token.value + "`"; break;
+            default:
+                return null;
+        }
+        Map<String, Object> contents = new LinkedHashMap<>();
+        contents.put("kind", "markdown");
+        contents.put("value", text);
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("contents", contents);
+        result.put("range", range(document, token.offset, SourceDocument.end(token)));
+        return result;
+    }
+
+    // Analyzes every document edited since its last publication and sends its errors.
+    private void publishDiagnostics() {
+        for (String uri : staleDiagnostics) {
+            SourceDocument document = documents.get(uri);
+            ErrorHandler errors = document.getErrorHandler();
+            List<Object> diagnostics = new ArrayList<>();
+            for (int i = 0; i < errors.getErrors().size(); i++) {
+                int offset = Math.max(0, errors.getErrorOffsets().get(i));
+                int index = document.tokenIndexAt(offset);
+                int end = index >= 0 && document.getTokens().get(index).offset == offset
+                        ? SourceDocument.end(document.getTokens().get(index))
+                        : Math.min(offset + 1, document.getText().length());
+                Map<String, Object> diagnostic = new LinkedHashMap<>();
+                diagnostic.put("range", range(document, offset, end));
+                diagnostic.put("severity", 1); // error
+                diagnostic.put("source", "ms");
+                diagnostic.put("message", errors.getErrors().get(i));
+                diagnostics.add(diagnostic);
+            }
+            Map<String, Object> params = new LinkedHashMap<>();
+            params.put("uri", uri);
+            params.put("version", document.getVersion());
+            params.put("diagnostics", diagnostics);
+            sendNotification("textDocument/publishDiagnostics", params);
+        }
+        staleDiagnostics.clear();
+    }
+
+    private SourceDocument document(String uri) {
+        SourceDocument document = documents.get(uri);
+        if (document == null) {
+            throw new RuntimeException("Document is not open: " + uri);
+        }
+        return document;
+    }
+
+    private static String uri(Map<String, Object> params) {
+        return (String) Json.object(params.get("textDocument")).get("uri");
+    }
+
+    private static int offset(SourceDocument document, Object position) {
+        Map<String, Object> pos = Json.object(position);
+        return document.offsetAt(Json.intValue(pos.get("line")), Json.intValue(pos.get("character")));
+    }
+
+    private static Map<String, Object> range(SourceDocument document, int start, int end) {
+        Map<String, Object> range = new LinkedHashMap<>();
+        range.put("start", position(document, start));
+        range.put("end", position(document, end));
+        return range;
+    }
+
+    private static Map<String, Object> position(SourceDocument document, int offset) {
+        LineIndex lines = document.getLineIndex();
+        Map<String, Object> position = new LinkedHashMap<>();
+        position.put("line", lines.lineOf(offset) - 1);
+        position.put("character", lines.columnOf(offset) - 1);
+        return position;
+    }
+
+    private void sendResult(Object id, Object result) {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("jsonrpc", "2.0");
+        response.put("id", id);
+        response.put("result", result);
+        send(response);
+    }
+
+    private void sendError(Object id, int code, String message) {
+        Map<String, Object> error = new LinkedHashMap<>();
+        error.put("code", code);
+        error.put("message", message);
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("jsonrpc", "2.0");
+        response.put("id", id);
+        response.put("error", error);
+        send(response);
+    }
+
+    private void sendNotification(String method, Object params) {
+        Map<String, Object> notification = new LinkedHashMap<>();
+        notification.put("jsonrpc", "2.0");
+        notification.put("method", method);
+        notification.put("params", params);
+        send(notification);
+    }
+
+    private void send(Map<String, Object> message) {
+        byte[] body = Json.write(message).getBytes(StandardCharsets.UTF_8);
+        try {
+            out.write(("Content-Length: " + body.length + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            out.write(body);
+            out.flush();
+        } catch (IOException e) {
+            System.err.println("Error writing to client: " + e.getMessage());
+        }
+    }
+}
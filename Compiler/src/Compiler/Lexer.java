@@ -1,6 +1,9 @@
 package Compiler;
 
+import java.io.PrintWriter;
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 public class Lexer {
 /////////
@@ -9,6 +12,7 @@ public class Lexer {
     private List<Token> tokens;
     private SymbolTable symbolTable;
     private ErrorHandler errorHandler;
+    private LineIndex lineIndex;
     
     // Map each token type to its corresponding DFA for pattern matching.
     private Map<TokenType, DFA> tokenDFAs;
@@ -20,63 +24,83 @@ public class Lexer {
     
     // Used for symbol table processing (lookahead).
     private int tokenIndex = 0;
+    
+    private static final CompilerMetrics.Timer LEX_TIMER = CompilerMetrics.timer("lex");
+    private static final CompilerMetrics.Timer SYMBOL_TIMER = CompilerMetrics.timer("symbolTable");
+    private static final CompilerMetrics.Counter BYTES = CompilerMetrics.counter("lexer.bytes");
+    private static final CompilerMetrics.Counter TOKENS = CompilerMetrics.counter("lexer.tokens");
+    private static final CompilerMetrics.Counter RUN_TOKENS = CompilerMetrics.counter("lexer.runTokens");
+    private static final CompilerMetrics.Counter UNRECOGNIZED = CompilerMetrics.counter("lexer.unrecognized");
 
     public Lexer(String input) {
         this.input = input;
         this.tokens = new ArrayList<>();
         this.symbolTable = new SymbolTable();
         this.errorHandler = new ErrorHandler();
+        this.lineIndex = new LineIndex(input);
         this.tokenDFAs = new LinkedHashMap<>();
         initTokenDFAs();
     }
     
-    // Initializes DFAs for different token patterns.
-    // Initializes DFAs for different token patterns.
-    private void initTokenDFAs() {
-        // Regular expressions for tokens.
-        // Note: Regexes are simplified.
+    // Reuses token DFAs built by another Lexer (see getTokenDFAs()). The DFAs are
+    // read-only once built, so many lexers on different threads can share them.
+    public Lexer(String input, Map<TokenType, DFA> tokenDFAs) {
+        this(input, tokenDFAs, new LineIndex(input));
+    }
+    
+    // Also reuses a line index of input that the caller already has.
+    public Lexer(String input, Map<TokenType, DFA> tokenDFAs, LineIndex lineIndex) {
+        this.input = input;
+        this.tokens = new ArrayList<>();
+        this.symbolTable = new SymbolTable();
+        this.errorHandler = new ErrorHandler();
+        this.lineIndex = lineIndex;
+        this.tokenDFAs = tokenDFAs;
+    }
+    
+    // Regular expressions for tokens, in match priority order.
+    // Note: Regexes are simplified.
+    static final Map<TokenType, String> TOKEN_REGEXES = new LinkedHashMap<>();
+    static {
     	// Comments
-    	String singleLineCommentRegex = "//.*";
-    	String multiLineCommentRegex = "/\\*([^*]|\\*+[^*/])*\\*+/";
+    	TOKEN_REGEXES.put(TokenType.SINGLE_COMMENT, "//.*");
+    	TOKEN_REGEXES.put(TokenType.MULTI_COMMENT, "/\\*([^*]|\\*+[^*/])*\\*+/");
     	
     	// Literals (using simpler patterns)
-    	String stringRegex   = "\".*\"";       // greedy matching for strings
-    	String charRegex     = "'.'";          // a single character between single quotes
-    	String booleanRegex  = "true|false";   // boolean literals
+    	TOKEN_REGEXES.put(TokenType.STRING, "\".*\"");     // greedy matching for strings
+    	TOKEN_REGEXES.put(TokenType.CHAR, "'.'");            // a single character between single quotes
+    	TOKEN_REGEXES.put(TokenType.BOOLEAN, "true|false");  // boolean literals
 
     	// Numeric literals
-    	String decimalRegex  = "[0-9]+\\.([0-9]|[0-9][0-9]|[0-9][0-9][0-9]|[0-9][0-9][0-9][0-9]|[0-9][0-9][0-9][0-9][0-9])"; // one or more digits, a dot, max 5 digits
-    	String integerRegex  = "[0-9]+";
+    	TOKEN_REGEXES.put(TokenType.DECIMAL, "[0-9]+\\.([0-9]|[0-9][0-9]|[0-9][0-9][0-9]|[0-9][0-9][0-9][0-9]|[0-9][0-9][0-9][0-9][0-9])"); // one or more digits, a dot, max 5 digits
+    	TOKEN_REGEXES.put(TokenType.INTEGER, "[0-9]+");
 
     	// Punctuation and operators
-    	String assignRegex   = "=";
-    	String lparenRegex   = "\\(";
-    	String rparenRegex   = "\\)";
-    	String lbraceRegex   = "\\{";
-    	String rbraceRegex   = "\\}";
-    	String operatorRegex = "(\\+|\\-|\\*|/|%|<|>|^)";
+    	TOKEN_REGEXES.put(TokenType.ASSIGN, "=");
+    	TOKEN_REGEXES.put(TokenType.LPAREN, "\\(");
+    	TOKEN_REGEXES.put(TokenType.RPAREN, "\\)");
+    	TOKEN_REGEXES.put(TokenType.LBRACE, "\\{");
+    	TOKEN_REGEXES.put(TokenType.RBRACE, "\\}");
+    	TOKEN_REGEXES.put(TokenType.OPERATOR, "(\\+|\\-|\\*|/|%|<|>|^)");
 
     	// Identifier (only lowercase letters per assignment)
-    	String identifierRegex = "[a-z]+";
-        
-        // Create DFAs by converting regex -> NFA -> DFA.
-        RegexToNFA regexToNFA = new RegexToNFA();
+    	TOKEN_REGEXES.put(TokenType.IDENTIFIER, "[a-z]+");
+    }
+    
+    // Initializes DFAs for different token patterns.
+    // The automata are independent, so they are built concurrently on the common pool,
+    // each with its own converter; the map is then filled in priority order.
+    private void initTokenDFAs() {
+        List<Map.Entry<TokenType, String>> specs = new ArrayList<>(TOKEN_REGEXES.entrySet());
         try {
-        	// In Lexer.initTokenDFAs(), using a LinkedHashMap to preserve order
-        	tokenDFAs.put(TokenType.SINGLE_COMMENT, new DFA(regexToNFA.convert(singleLineCommentRegex)));
-        	tokenDFAs.put(TokenType.MULTI_COMMENT, new DFA(regexToNFA.convert(multiLineCommentRegex)));
-        	tokenDFAs.put(TokenType.STRING, new DFA(regexToNFA.convert(stringRegex)));
-        	tokenDFAs.put(TokenType.CHAR, new DFA(regexToNFA.convert(charRegex)));
-        	tokenDFAs.put(TokenType.BOOLEAN, new DFA(regexToNFA.convert(booleanRegex)));
-        	tokenDFAs.put(TokenType.DECIMAL, new DFA(regexToNFA.convert(decimalRegex)));
-        	tokenDFAs.put(TokenType.INTEGER, new DFA(regexToNFA.convert(integerRegex)));
-        	tokenDFAs.put(TokenType.ASSIGN, new DFA(regexToNFA.convert(assignRegex)));
-        	tokenDFAs.put(TokenType.LPAREN, new DFA(regexToNFA.convert(lparenRegex)));
-        	tokenDFAs.put(TokenType.RPAREN, new DFA(regexToNFA.convert(rparenRegex)));
-        	tokenDFAs.put(TokenType.LBRACE, new DFA(regexToNFA.convert(lbraceRegex)));
-        	tokenDFAs.put(TokenType.RBRACE, new DFA(regexToNFA.convert(rbraceRegex)));
-        	tokenDFAs.put(TokenType.OPERATOR, new DFA(regexToNFA.convert(operatorRegex)));
-        	tokenDFAs.put(TokenType.IDENTIFIER, new DFA(regexToNFA.convert(identifierRegex)));
+        	// Create DFAs by converting regex -> NFA -> DFA.
+        	List<DFA> dfas = specs.parallelStream()
+        			.map(spec -> new DFA(new RegexToNFA().convert(spec.getValue())))
+        			.toList();
+        	// LinkedHashMap preserves the priority order
+        	for (int i = 0; i < specs.size(); i++) {
+        		tokenDFAs.put(specs.get(i).getKey(), dfas.get(i));
+        	}
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -84,59 +108,167 @@ public class Lexer {
     
     // Tokenizes the entire input, then processes tokens for the symbol table.
     public void tokenize() {
-        int pos = 0;
-        int lineNumber = 1;
+        lex(tokens::add);
+        // Process the token stream for symbol table entries
+        try (CompilerMetrics.Phase phase = SYMBOL_TIMER.start()) {
+            for (tokenIndex = 0; tokenIndex < tokens.size(); tokenIndex++) {
+                processTokenForSymbolTable(tokens.get(tokenIndex));
+            }
+            phase.setWork(0, tokens.size());
+        }
+    }
+    
+    // Scans the whole input, handing each token to the sink in order. Touches only the
+    // input, the DFAs and the error handler, so it can run on its own pipeline stage.
+    void lex(Consumer<Token> sink) {
+        try (CompilerMetrics.Phase phase = LEX_TIMER.start()) {
+            long count = scan(sink);
+            BYTES.add(input.length());
+            TOKENS.add(count);
+            phase.setWork(input.length(), count);
+        }
+    }
+    
+    // Returns the number of tokens produced.
+    private long scan(Consumer<Token> sink) {
+        long[] count = {0};
+        lexFrom(0, token -> {
+            sink.accept(token);
+            count[0]++;
+            return true;
+        });
+        return count[0];
+    }
+    
+    // Scans from start until the sink rejects a token or the input ends, and returns the
+    // offset where scanning stopped (the rejected token's offset, or the input length).
+    // start must be a position the full scan passes through: 0, a token start, or a
+    // position separated from the next token only by whitespace. Used by SourceDocument
+    // to re-lex just the edited part of a file.
+    int lexFrom(int start, Predicate<Token> sink) {
+        return lexFrom(start, new CharRunScanner(input), sink);
+    }
+    
+    // As above, with a caller-chosen scanner over input.
+    int lexFrom(int start, CharRunScanner scanner, Predicate<Token> sink) {
+        int pos = start;
         while (pos < input.length()) {
             char c = input.charAt(pos);
-            // Update line counter for newline characters
+            // Skip the whole whitespace run; lines are recovered later from the LineIndex
             if (Character.isWhitespace(c)) {
-                if (c == '\n') {
-                    lineNumber++;
+                pos = scanner.skipWhitespace(pos);
+                continue;
+            }
+            // Long runs (identifiers, comments) are measured in bulk instead of stepping the DFAs
+            Token runToken = matchRun(input, scanner, c, pos);
+            if (runToken != null) {
+                if (!sink.test(runToken)) {
+                    return pos;
                 }
-                pos++;
+                pos += runToken.value.length();
+                RUN_TOKENS.increment();
                 continue;
             }
             boolean matched = false;
             // Try each token type (order matters)
             for (Map.Entry<TokenType, DFA> entry : tokenDFAs.entrySet()) {
                 DFA dfa = entry.getValue();
-                String tokenValue = dfa.match(input.substring(pos));
+                int end = dfa.matchEnd(input, pos);
 				
-                if (tokenValue != null && !tokenValue.isEmpty()) {
+                if (end > pos) {
+                    String tokenValue = input.substring(pos, end);
                     TokenType type = entry.getKey();
                     if (type == TokenType.IDENTIFIER && isKeyword(tokenValue)) {
                         type = TokenType.KEYWORD;
                     }
-                    tokens.add(new Token(type, tokenValue, lineNumber));
+                    if (!sink.test(new Token(type, tokenValue, pos))) {
+                        return pos;
+                    }
                     pos += tokenValue.length();
                     matched = true;
                     break;
                 }
             }
             if (!matched) {
-                errorHandler.addError("Unrecognized token at line " + lineNumber + ", position " + pos);
+                reportUnrecognized(pos);
                 pos++;
             }
         }
-        // Process the token stream for symbol table entries
-        for (tokenIndex = 0; tokenIndex < tokens.size(); tokenIndex++) {
+        return pos;
+    }
+    
+    // Records a character that no token pattern matches.
+    void reportUnrecognized(int pos) {
+        errorHandler.addError("Unrecognized token at line " + lineIndex.lineOf(pos) +
+                              ", column " + lineIndex.columnOf(pos), pos);
+        UNRECOGNIZED.increment();
+    }
+    
+    // Symbol-table stage for a streamed token: records it and processes every token
+    // whose two-token lookahead is now available.
+    void acceptForSymbolTable(Token token) {
+        tokens.add(token);
+        for (; tokenIndex + 2 < tokens.size(); tokenIndex++) {
             processTokenForSymbolTable(tokens.get(tokenIndex));
         }
     }
     
+    // Symbol-table stage at end of stream: processes the remaining tokens.
+    void finishSymbolTable() {
+        for (; tokenIndex < tokens.size(); tokenIndex++) {
+            processTokenForSymbolTable(tokens.get(tokenIndex));
+        }
+    }
+    
+    // Fast path for tokens whose extent is a simple character run. Produces exactly what
+    // the DFAs would (same priority order), or null to fall back to them. GeneratedScanner
+    // shares it.
+    static Token matchRun(String input, CharRunScanner scanner, char c, int pos) {
+        if (c >= 'a' && c <= 'z') {
+            // BOOLEAN is tried before IDENTIFIER, and matches a true/false prefix on its own
+            if (input.startsWith("true", pos)) {
+                return new Token(TokenType.BOOLEAN, "true", pos);
+            }
+            if (input.startsWith("false", pos)) {
+                return new Token(TokenType.BOOLEAN, "false", pos);
+            }
+            String value = input.substring(pos, scanner.identifierEnd(pos));
+            return new Token(isKeyword(value) ? TokenType.KEYWORD : TokenType.IDENTIFIER, value, pos);
+        }
+        if (c == '/' && pos + 1 < input.length()) {
+            char next = input.charAt(pos + 1);
+            if (next == '/') {
+                return new Token(TokenType.SINGLE_COMMENT, input.substring(pos, scanner.printableEnd(pos + 2)), pos);
+            }
+            if (next == '*') {
+                int end = scanner.multiCommentEnd(pos + 2);
+                if (end != -1) {
+                    return new Token(TokenType.MULTI_COMMENT, input.substring(pos, end), pos);
+                }
+            }
+        }
+        return null;
+    }
+    
+    // Reserved words; identifiers matching one of these become KEYWORD tokens.
+    static final Set<String> KEYWORDS = new LinkedHashSet<>(Arrays.asList(
+        "if", "else", "while", "return", "int", "float", "char", "boolean",
+        "global", "integer", "function", "string"
+    ));
+    
     // Checks if a given token value is a keyword.
-    private boolean isKeyword(String value) {
-        Set<String> keywords = new HashSet<>(Arrays.asList(
-            "if", "else", "while", "return", "int", "float", "char", "boolean",
-            "global", "integer", "function", "string"
-        ));
-        return keywords.contains(value);
+    private static boolean isKeyword(String value) {
+        return KEYWORDS.contains(value);
     }
     
+    // Keywords that start a declaration.
+    static final Set<String> DATA_TYPES = new HashSet<>(Arrays.asList(
+        "integer", "float", "char", "boolean", "string"
+    ));
+    
     // Checks if the token is a data type keyword.
     private boolean isDataTypeKeyword(String value) {
-        Set<String> dataTypes = new HashSet<>(Arrays.asList("integer", "float", "char", "boolean", "string"));
-        return dataTypes.contains(value);
+        return DATA_TYPES.contains(value);
     }
     
     // Processes a token for symbol table entries.
@@ -191,12 +323,27 @@ public class Lexer {
         return errorHandler;
     }
     
+    public LineIndex getLineIndex() {
+        return lineIndex;
+    }
+    
+    // Token DFAs in match priority order.
+    public Map<TokenType, DFA> getTokenDFAs() {
+        return tokenDFAs;
+    }
+    
     public void printDFATransitionTables() {
-        System.out.println("=== DFA Transition Tables ===");
+        PrintWriter out = new PrintWriter(System.out);
+        printDFATransitionTables(out);
+        out.flush();
+    }
+    
+    public void printDFATransitionTables(PrintWriter out) {
+        out.println("=== DFA Transition Tables ===");
         for (Map.Entry<TokenType, DFA> entry : tokenDFAs.entrySet()) {
-            System.out.println("DFA for token type: " + entry.getKey());
-            entry.getValue().displayTransitionTable();
-            System.out.println("-----------------------------------------------------");
+            out.println("DFA for token type: " + entry.getKey());
+            entry.getValue().displayTransitionTable(out);
+            out.println("-----------------------------------------------------");
         	
         }
     }
@@ -0,0 +1,546 @@
+package Compiler;
+
+import java.io.*;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Differential fuzzing harness for the regex compiler and the lexers.
+//
+// 1. Regexes: generates random regexes over the syntax RegexToNFA supports (literals,
+//    escapes, [a-z], [0-9], [abc], [^abc], '.', grouping, '|', '*', '+') together with
+//    an equivalent java.util.regex pattern, and checks that DFA.match returns the same
+//    longest prefix as the oracle on random inputs.
+// 2. Lexers: generates random token soup (including malformed input) and checks that
+//    the generated scanner, the pipelined compiler and the cache's binary round trip
+//    agree with the reference Lexer.tokenize() / CompilationResult.compile(), and that
+//    token DFAs built in parallel are identical to ones built on a single thread, and
+//    that GeneratedScanner.java is what ScannerGenerator produces from them.
+//    Random edits to a SourceDocument (the language server's incremental re-lexing)
+//    must leave it equal to a full compile of the edited text.
+// 3. Throughput: measures each lexer on a generated corpus and fails if one falls
+//    below its target.
+//
+// Failures are shrunk to a small reproducer and make the process exit with status 1.
+// Usage: LexerFuzzer [--seed n] [--regexes n] [--inputs n] [--programs n]
+//                    [--corpus KB] [--target mode=MBps]...
+public class LexerFuzzer {
+    // Minimum throughput per lexer mode, in MB/s; override with --target mode=MBps.
+    // These are regression floors, about half of what a single core sustains.
+    private static final Map<String, Double> DEFAULT_TARGETS = new LinkedHashMap<>();
+    static {
+        DEFAULT_TARGETS.put("lexer", 1.5);
+        DEFAULT_TARGETS.put("generated", 2.5);
+        DEFAULT_TARGETS.put("pipelined", 1.0);
+    }
+
+    private static final String LITERALS = "abc01^";
+    private static final String ESCAPES = "+*()|.";
+    private static final String INPUT_CHARS = "abcz0159^+*()|. \t\n";
+    // What '.' and the negated class accept in RegexToNFA, as Java character classes.
+    private static final String JAVA_DOT = "[\\x20-\\x7E]";
+    private static final String JAVA_NEGATED_BASE = "[\\x20-\\x7E\\t\\n\\r&&[^";
+
+    private final Random random;
+    private int failures = 0;
+
+    public LexerFuzzer(long seed) {
+        this.random = new Random(seed);
+    }
+
+    public static void main(String[] args) throws IOException {
+        long seed = System.nanoTime();
+        int regexes = 2000;
+        int inputs = 50;
+        int programs = 500;
+        int corpusKb = 512;
+        Map<String, Double> targets = new LinkedHashMap<>(DEFAULT_TARGETS);
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--seed") && i + 1 < args.length) {
+                seed = Long.parseLong(args[++i]);
+            } else if (args[i].equals("--regexes") && i + 1 < args.length) {
+                regexes = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--inputs") && i + 1 < args.length) {
+                inputs = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--programs") && i + 1 < args.length) {
+                programs = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--corpus") && i + 1 < args.length) {
+                corpusKb = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--target") && i + 1 < args.length) {
+                String[] target = args[++i].split("=", 2);
+                targets.put(target[0], Double.parseDouble(target[1]));
+            } else {
+                System.err.println("Usage: LexerFuzzer [--seed n] [--regexes n] [--inputs n] [--programs n] "
+                                   + "[--corpus KB] [--target mode=MBps]...");
+                System.exit(2);
+            }
+        }
+        System.out.println("Seed: " + seed);
+        LexerFuzzer fuzzer = new LexerFuzzer(seed);
+        fuzzer.fuzzRegexes(regexes, inputs);
+        Map<TokenType, DFA> tokenDFAs = new Lexer("").getTokenDFAs();
+        fuzzer.checkParallelConstruction(tokenDFAs);
+        fuzzer.checkGeneratedSource(tokenDFAs);
+        fuzzer.fuzzLexers(programs, tokenDFAs);
+        fuzzer.fuzzDocumentEdits(programs, tokenDFAs);
+        fuzzer.checkThroughput(corpusKb * 1024, tokenDFAs, targets);
+        if (fuzzer.failures > 0) {
+            System.out.println(fuzzer.failures + " failure(s)");
+            System.exit(1);
+        }
+        System.out.println("All checks passed");
+    }
+
+    // ---- Regex vs java.util.regex ----
+
+    // A generated regex in RegexToNFA syntax and the equivalent Java pattern.
+    private static class GeneratedRegex {
+        final String ours;
+        final String java;
+
+        GeneratedRegex(String ours, String java) {
+            this.ours = ours;
+            this.java = java;
+        }
+    }
+
+    void fuzzRegexes(int count, int inputsPerRegex) {
+        int checked = 0;
+        for (int i = 0; i < count; i++) {
+            GeneratedRegex regex = alternation(3);
+            DFA dfa;
+            try {
+                dfa = new DFA(new RegexToNFA().convert(regex.ours));
+            } catch (RuntimeException e) {
+                fail("regex " + quote(regex.ours) + " failed to compile: " + e.getMessage());
+                continue;
+            }
+            Pattern pattern = Pattern.compile(regex.java);
+            for (int j = 0; j < inputsPerRegex; j++) {
+                String input = randomInput();
+                if (!matchAgrees(dfa, pattern, input)) {
+                    String shrunk = shrinkInput(dfa, pattern, input);
+                    fail("regex " + quote(regex.ours) + " (java " + quote(regex.java) + ") on input "
+                         + quote(shrunk) + ": DFA matched " + quote(dfa.match(shrunk))
+                         + ", java.util.regex longest prefix " + quote(oracle(pattern, shrunk)));
+                    break;
+                }
+                checked++;
+            }
+        }
+        System.out.printf("Regexes: %d generated, %d inputs checked against java.util.regex%n", count, checked);
+    }
+
+    private GeneratedRegex alternation(int depth) {
+        GeneratedRegex result = concatenation(depth);
+        while (random.nextInt(4) == 0) {
+            GeneratedRegex next = concatenation(depth);
+            result = new GeneratedRegex(result.ours + "|" + next.ours, result.java + "|" + next.java);
+        }
+        return result;
+    }
+
+    private GeneratedRegex concatenation(int depth) {
+        StringBuilder ours = new StringBuilder();
+        StringBuilder java = new StringBuilder();
+        int pieces = 1 + random.nextInt(3);
+        for (int i = 0; i < pieces; i++) {
+            GeneratedRegex piece = repetition(depth);
+            ours.append(piece.ours);
+            java.append(piece.java);
+        }
+        return new GeneratedRegex(ours.toString(), java.toString());
+    }
+
+    private GeneratedRegex repetition(int depth) {
+        GeneratedRegex atom = atom(depth);
+        switch (random.nextInt(4)) {
+            case 0:
+                return new GeneratedRegex(atom.ours + "*", atom.java + "*");
+            case 1:
+                return new GeneratedRegex(atom.ours + "+", atom.java + "+");
+            default:
+                return atom;
+        }
+    }
+
+    private GeneratedRegex atom(int depth) {
+        int choice = random.nextInt(depth > 0 ? 9 : 8);
+        switch (choice) {
+            case 0:
+            case 1: {
+                char c = LITERALS.charAt(random.nextInt(LITERALS.length()));
+                return new GeneratedRegex(String.valueOf(c), Pattern.quote(String.valueOf(c)));
+            }
+            case 2: {
+                char c = ESCAPES.charAt(random.nextInt(ESCAPES.length()));
+                return new GeneratedRegex("\\" + c, "\\" + c);
+            }
+            case 3:
+                return new GeneratedRegex("[a-z]", "[a-z]");
+            case 4:
+                return new GeneratedRegex("[0-9]", "[0-9]");
+            case 5: {
+                String content = randomClassContent();
+                return new GeneratedRegex("[" + content + "]", "[" + content + "]");
+            }
+            case 6: {
+                String content = randomClassContent();
+                return new GeneratedRegex("[^" + content + "]", JAVA_NEGATED_BASE + content + "]]");
+            }
+            case 7:
+                return new GeneratedRegex(".", JAVA_DOT);
+            default: {
+                GeneratedRegex inner = alternation(depth - 1);
+                return new GeneratedRegex("(" + inner.ours + ")", "(?:" + inner.java + ")");
+            }
+        }
+    }
+
+    private String randomClassContent() {
+        StringBuilder content = new StringBuilder();
+        int length = 1 + random.nextInt(3);
+        for (int i = 0; i < length; i++) {
+            content.append("abc01".charAt(random.nextInt(5)));
+        }
+        return content.toString();
+    }
+
+    private String randomInput() {
+        StringBuilder input = new StringBuilder();
+        int length = random.nextInt(12);
+        for (int i = 0; i < length; i++) {
+            input.append(INPUT_CHARS.charAt(random.nextInt(INPUT_CHARS.length())));
+        }
+        return input.toString();
+    }
+
+    private static boolean matchAgrees(DFA dfa, Pattern pattern, String input) {
+        return Objects.equals(dfa.match(input), oracle(pattern, input));
+    }
+
+    // Longest non-empty prefix the pattern matches in full, or null (DFA.match never
+    // reports an empty match).
+    private static String oracle(Pattern pattern, String input) {
+        Matcher matcher = pattern.matcher(input);
+        for (int end = input.length(); end > 0; end--) {
+            if (matcher.region(0, end).matches()) {
+                return input.substring(0, end);
+            }
+        }
+        return null;
+    }
+
+    // Deletes characters while the mismatch persists.
+    private static String shrinkInput(DFA dfa, Pattern pattern, String input) {
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int i = 0; i < input.length(); i++) {
+                String candidate = input.substring(0, i) + input.substring(i + 1);
+                if (!matchAgrees(dfa, pattern, candidate)) {
+                    input = candidate;
+                    changed = true;
+                    break;
+                }
+            }
+        }
+        return input;
+    }
+
+    // ---- Lexer modes vs the reference lexer ----
+
+    private static final String[] WORDS = {
+        "if", "else", "while", "return", "int", "float", "char", "boolean", "global", "integer",
+        "function", "string", "main", "count", "x", "truth", "falsey", "true", "false"
+    };
+    private static final String[] SYMBOLS = {"=", "(", ")", "{", "}", "+", "-", "*", "/", "%", "<", ">", "^"};
+    private static final String[] JUNK = {"@", "#", "$", ";", ",", ".", "A", "Z", "é", "\"", "'", "/*"};
+    private static final int EDITS_PER_DOCUMENT = 20;
+    private static final String[] SPACES = {" ", " ", "  ", "\t", "\n", "\r\n", "\n\n"};
+
+    void fuzzLexers(int count, Map<TokenType, DFA> tokenDFAs) {
+        PipelinedCompiler pipelined = new PipelinedCompiler(tokenDFAs);
+        for (int i = 0; i < count; i++) {
+            List<String> pieces = randomProgram(1 + random.nextInt(60));
+            String difference = compareModes(String.join("", pieces), tokenDFAs, pipelined);
+            if (difference != null) {
+                pieces = shrinkProgram(pieces, tokenDFAs, pipelined);
+                String source = String.join("", pieces);
+                fail("lexer modes disagree on " + quote(source) + ": "
+                     + compareModes(source, tokenDFAs, pipelined));
+            }
+        }
+        System.out.printf("Lexers: %d random programs checked (generated scanner, pipelined, cache round trip)%n", count);
+    }
+
+    // Applies random edits to a document; after each one, its tokens, diagnostics and
+    // symbol table must match a full compile of the same text.
+    void fuzzDocumentEdits(int count, Map<TokenType, DFA> tokenDFAs) {
+        int edits = 0;
+        for (int i = 0; i < count; i++) {
+            SourceDocument document = new SourceDocument(String.join("", randomProgram(1 + random.nextInt(60))), 0, tokenDFAs);
+            for (int version = 1; version <= EDITS_PER_DOCUMENT; version++) {
+                String before = document.getText();
+                int start = random.nextInt(before.length() + 1);
+                int end = start + random.nextInt(Math.min(12, before.length() - start) + 1);
+                String replacement = String.join("", randomProgram(random.nextInt(4)));
+                List<Token> previous = document.getTokens();
+                int[] previousOffsets = previous.stream().mapToInt(token -> token.offset).toArray();
+                document.edit(start, end, replacement, version);
+                edits++;
+                String difference = resultDifference(CompilationResult.compile(document.getText(), tokenDFAs),
+                        new CompilationResult(document.getTokens(), document.getSymbolTable(), document.getErrorHandler()));
+                if (difference == null) {
+                    difference = lineIndexDifference(new LineIndex(document.getText()), document.getLineIndex());
+                }
+                if (difference == null && !Arrays.equals(previousOffsets,
+                        previous.stream().mapToInt(token -> token.offset).toArray())) {
+                    difference = "the token list from before the edit was modified";
+                }
+                if (difference != null) {
+                    fail("incremental edit of " + quote(before) + " replacing " + start + ".." + end
+                         + " with " + quote(replacement) + ": " + difference);
+                    break;
+                }
+            }
+        }
+        System.out.printf("Documents: %d incremental edits checked against full compiles%n", edits);
+    }
+
+    private static String lineIndexDifference(LineIndex expected, LineIndex actual) {
+        if (expected.getLineCount() != actual.getLineCount()) {
+            return "line index has " + actual.getLineCount() + " lines, expected " + expected.getLineCount();
+        }
+        for (int line = 1; line <= expected.getLineCount(); line++) {
+            if (expected.lineStart(line) != actual.lineStart(line)) {
+                return "line " + line + " starts at " + actual.lineStart(line) + ", expected " + expected.lineStart(line);
+            }
+        }
+        return null;
+    }
+
+    private List<String> randomProgram(int length) {
+        List<String> pieces = new ArrayList<>();
+        for (int i = 0; i < length; i++) {
+            pieces.add(randomPiece());
+            pieces.add(SPACES[random.nextInt(SPACES.length)]);
+        }
+        return pieces;
+    }
+
+    private String randomPiece() {
+        switch (random.nextInt(12)) {
+            case 0:
+            case 1:
+            case 2:
+                return WORDS[random.nextInt(WORDS.length)];
+            case 3:
+                return Integer.toString(random.nextInt(100000));
+            case 4: {
+                StringBuilder decimal = new StringBuilder(Integer.toString(random.nextInt(1000))).append('.');
+                int digits = 1 + random.nextInt(6); // more than 5 digits does not fit DECIMAL
+                for (int i = 0; i < digits; i++) {
+                    decimal.append((char) ('0' + random.nextInt(10)));
+                }
+                return decimal.toString();
+            }
+            case 5:
+                return "\"" + printable(random.nextInt(10)) + "\"";
+            case 6:
+                return "'" + printable(1) + "'";
+            case 7:
+                return "//" + printable(random.nextInt(15)) + "\n";
+            case 8:
+                return "/*" + printable(random.nextInt(15)).replace("*/", "") + (random.nextInt(8) == 0 ? "" : "*/");
+            case 9:
+                return JUNK[random.nextInt(JUNK.length)];
+            default:
+                return SYMBOLS[random.nextInt(SYMBOLS.length)];
+        }
+    }
+
+    private String printable(int length) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            text.append((char) (32 + random.nextInt(95)));
+        }
+        return text.toString();
+    }
+
+    // Returns a description of the first disagreement, or null if all modes agree.
+    private static String compareModes(String source, Map<TokenType, DFA> tokenDFAs, PipelinedCompiler pipelined) {
+        Lexer reference = new Lexer(source, tokenDFAs);
+        reference.tokenize();
+
+        ErrorHandler generatedErrors = new ErrorHandler();
+        List<Token> generated = GeneratedScanner.tokenize(source, generatedErrors);
+        String difference = tokenDifference(reference.getTokens(), generated);
+        if (difference != null) {
+            return "generated scanner: " + difference;
+        }
+        if (!reference.getErrorHandler().getErrors().equals(generatedErrors.getErrors())) {
+            return "generated scanner errors " + generatedErrors.getErrors()
+                   + " vs " + reference.getErrorHandler().getErrors();
+        }
+
+        CompilationResult expected = CompilationResult.compile(source, tokenDFAs);
+        difference = resultDifference(expected, pipelined.compile(source));
+        if (difference != null) {
+            return "pipelined: " + difference;
+        }
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            expected.writeTo(new DataOutputStream(bytes));
+            CompilationResult decoded = CompilationResult.readFrom(
+                    new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+            difference = resultDifference(expected, decoded);
+        } catch (IOException e) {
+            difference = e.toString();
+        }
+        return difference == null ? null : "cache round trip: " + difference;
+    }
+
+    private static String tokenDifference(List<Token> expected, List<Token> actual) {
+        for (int i = 0; i < Math.min(expected.size(), actual.size()); i++) {
+            Token a = expected.get(i);
+            Token b = actual.get(i);
+            if (a.type != b.type || !a.value.equals(b.value) || a.offset != b.offset) {
+                return "token " + i + " is " + describe(b) + ", expected " + describe(a);
+            }
+        }
+        if (expected.size() != actual.size()) {
+            return actual.size() + " tokens, expected " + expected.size();
+        }
+        return null;
+    }
+
+    private static String resultDifference(CompilationResult expected, CompilationResult actual) {
+        String difference = tokenDifference(expected.getTokens(), actual.getTokens());
+        if (difference != null) {
+            return difference;
+        }
+        if (!expected.getErrorHandler().getErrors().equals(actual.getErrorHandler().getErrors())) {
+            return "errors " + actual.getErrorHandler().getErrors() + ", expected " + expected.getErrorHandler().getErrors();
+        }
+        if (!expected.getErrorHandler().getErrorOffsets().equals(actual.getErrorHandler().getErrorOffsets())) {
+            return "error offsets " + actual.getErrorHandler().getErrorOffsets()
+                   + ", expected " + expected.getErrorHandler().getErrorOffsets();
+        }
+        Collection<SymbolTable.SymbolEntry> entries = expected.getSymbolTable().getEntries();
+        if (entries.size() != actual.getSymbolTable().getEntries().size()) {
+            return "symbol table sizes differ";
+        }
+        for (SymbolTable.SymbolEntry entry : entries) {
+            SymbolTable.SymbolEntry other = actual.getSymbolTable().getSymbol(entry.identifierName);
+            if (other == null || !Objects.equals(entry.dataType, other.dataType)
+                    || !Objects.equals(entry.scope, other.scope) || !Objects.equals(entry.value, other.value)
+                    || entry.memoryLocation != other.memoryLocation) {
+                return "symbol " + entry.identifierName + " differs";
+            }
+        }
+        return null;
+    }
+
+    // Removes pieces while the disagreement persists.
+    private static List<String> shrinkProgram(List<String> pieces, Map<TokenType, DFA> tokenDFAs,
+                                              PipelinedCompiler pipelined) {
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int i = 0; i < pieces.size(); i++) {
+                List<String> candidate = new ArrayList<>(pieces);
+                candidate.remove(i);
+                if (compareModes(String.join("", candidate), tokenDFAs, pipelined) != null) {
+                    pieces = candidate;
+                    changed = true;
+                    break;
+                }
+            }
+        }
+        return pieces;
+    }
+
+    // Token DFAs built concurrently by the Lexer must equal ones built one at a time here.
+    void checkParallelConstruction(Map<TokenType, DFA> tokenDFAs) throws IOException {
+        for (Map.Entry<TokenType, String> entry : Lexer.TOKEN_REGEXES.entrySet()) {
+            DFA sequential = new DFA(new RegexToNFA().convert(entry.getValue()));
+            if (!Arrays.equals(dump(sequential), dump(tokenDFAs.get(entry.getKey())))) {
+                fail("DFA for " + entry.getKey() + " differs between parallel and sequential construction");
+            }
+        }
+        System.out.printf("Automata: %d token DFAs identical to single-threaded construction%n",
+                          Lexer.TOKEN_REGEXES.size());
+    }
+
+    // GeneratedScanner.java must be what ScannerGenerator produces from the current token
+    // DFAs. Skipped when the source tree is not reachable from the working directory.
+    void checkGeneratedSource(Map<TokenType, DFA> tokenDFAs) throws IOException {
+        if (!java.nio.file.Files.exists(ScannerGenerator.DEFAULT_TARGET)) {
+            System.out.println("Generated scanner: source not found, freshness not checked");
+            return;
+        }
+        if (!new ScannerGenerator(tokenDFAs, Lexer.KEYWORDS).isUpToDate(ScannerGenerator.DEFAULT_TARGET)) {
+            fail(ScannerGenerator.DEFAULT_TARGET + " is out of date; regenerate it with ScannerGenerator");
+            return;
+        }
+        System.out.println("Generated scanner: source matches regeneration");
+    }
+
+    private static byte[] dump(DFA dfa) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        AutomatonExporter.writeBinary(dfa, out);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    // ---- Throughput ----
+
+    void checkThroughput(int corpusSize, Map<TokenType, DFA> tokenDFAs, Map<String, Double> targets) {
+        StringBuilder corpus = new StringBuilder();
+        while (corpus.length() < corpusSize) {
+            for (String piece : randomProgram(100)) {
+                corpus.append(piece);
+            }
+            corpus.append('\n');
+        }
+        String source = corpus.toString();
+        PipelinedCompiler pipelined = new PipelinedCompiler(tokenDFAs);
+        Map<String, Runnable> modes = new LinkedHashMap<>();
+        modes.put("lexer", () -> new Lexer(source, tokenDFAs).tokenize());
+        modes.put("generated", () -> GeneratedScanner.tokenize(source, new ErrorHandler()));
+        modes.put("pipelined", () -> pipelined.compile(source));
+        for (Map.Entry<String, Runnable> mode : modes.entrySet()) {
+            long best = Long.MAX_VALUE;
+            for (int i = 0; i < 5; i++) {
+                long start = System.nanoTime();
+                mode.getValue().run();
+                best = Math.min(best, System.nanoTime() - start);
+            }
+            double mbps = source.length() / 1e6 / (best / 1e9);
+            double target = targets.getOrDefault(mode.getKey(), 0.0);
+            System.out.printf("Throughput %-10s %8.2f MB/s (target %.2f)%n", mode.getKey(), mbps, target);
+            if (mbps < target) {
+                fail(mode.getKey() + " throughput " + String.format("%.2f", mbps) + " MB/s is below its target");
+            }
+        }
+    }
+
+    private void fail(String message) {
+        failures++;
+        System.out.println("FAIL: " + message);
+    }
+
+    private static String describe(Token token) {
+        return token.type + " " + quote(token.value) + " @" + token.offset;
+    }
+
+    private static String quote(String text) {
+        if (text == null) {
+            return "null";
+        }
+        return "\"" + text.replace("\\", "\\\\").replace("\n", "\\n").replace("\r", "\\r")
+                          .replace("\t", "\\t").replace("\"", "\\\"") + "\"";
+    }
+}
@@ -0,0 +1,73 @@
+package Compiler;
+
+import java.util.Arrays;
+
+// Start offsets of every line in a source file, built in one pass. Tokens only keep
+// their offset; line and column are recovered on demand by binary search.
+public class LineIndex {
+    private final int[] lineStarts;
+    private final int lineCount;
+
+    public LineIndex(String input) {
+        int[] starts = new int[16];
+        int count = 1; // starts[0] = 0
+        // String.indexOf is an intrinsic that scans many chars per step.
+        for (int nl = input.indexOf('\n'); nl != -1; nl = input.indexOf('\n', nl + 1)) {
+            if (count == starts.length) {
+                starts = Arrays.copyOf(starts, count * 2);
+            }
+            starts[count++] = nl + 1;
+        }
+        this.lineStarts = starts;
+        this.lineCount = count;
+    }
+
+    private LineIndex(int[] lineStarts, int lineCount) {
+        this.lineStarts = lineStarts;
+        this.lineCount = lineCount;
+    }
+
+    // Index of the text after replacing [start, end) with replacement, without rescanning
+    // it: lines before the edit are copied, newlines in the replacement are added and the
+    // lines after it are shifted. This index is left unchanged.
+    public LineIndex edited(int start, int end, String replacement) {
+        int before = lineOf(start);   // line starts <= start survive
+        int after = lineOf(end);      // line starts > end move by delta
+        int delta = replacement.length() - (end - start);
+        int added = 0;
+        for (int nl = replacement.indexOf('\n'); nl != -1; nl = replacement.indexOf('\n', nl + 1)) {
+            added++;
+        }
+        int[] starts = new int[before + added + lineCount - after];
+        System.arraycopy(lineStarts, 0, starts, 0, before);
+        int count = before;
+        for (int nl = replacement.indexOf('\n'); nl != -1; nl = replacement.indexOf('\n', nl + 1)) {
+            starts[count++] = start + nl + 1;
+        }
+        for (int i = after; i < lineCount; i++) {
+            starts[count++] = lineStarts[i] + delta;
+        }
+        return new LineIndex(starts, count);
+    }
+
+    public int getLineCount() {
+        return lineCount;
+    }
+
+    // 1-based line containing the given offset.
+    public int lineOf(int offset) {
+        int index = Arrays.binarySearch(lineStarts, 0, lineCount, offset);
+        // An inexact hit returns -(insertion point) - 1; the line is the one before it.
+        return index >= 0 ? index + 1 : -index - 1;
+    }
+
+    // 1-based column of the given offset within its line.
+    public int columnOf(int offset) {
+        return offset - lineStart(lineOf(offset)) + 1;
+    }
+
+    // Offset of the first character on a 1-based line.
+    public int lineStart(int line) {
+        return lineStarts[line - 1];
+    }
+}
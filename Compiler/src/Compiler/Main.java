@@ -1,64 +1,195 @@
 package Compiler;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 
 public class Main {
 /////////
+    // How much Main prints. FULL is the original dump (source, DFA tables, every token,
+    // symbol table, IR and execution), SUMMARY prints counts and errors, SILENT prints
+    // nothing and only sets the exit status.
+    enum OutputMode { SILENT, SUMMARY, FULL }
+
+    static final String USAGE = "Usage: Main [--output=silent|summary|full] [--tokens=<file>] [--stats | --stats=<file>] [file.ms]";
+
+    // See USAGE. An unknown option or output mode prints the usage and exits with status 2,
+    // a missing or unreadable source exits with status 1.
+    // --tokens writes the token stream as a binary TokenDump instead of listing it.
+    // --stats prints a JSON report of phase timings and counters after the run.
     public static void main(String[] args) {
         String filename = "code.ms";
+        Path sourcePath = Paths.get("src", "Compiler", filename);
+        OutputMode mode = OutputMode.FULL;
+        Path tokensPath = null;
+        boolean stats = false;
+        Path statsPath = null;
+        for (String arg : args) {
+            if (arg.equals("--stats")) {
+                stats = true;
+            } else if (arg.startsWith("--stats=")) {
+                stats = true;
+                statsPath = Paths.get(arg.substring("--stats=".length()));
+            } else if (arg.startsWith("--output=")) {
+                mode = parseMode(arg.substring("--output=".length()));
+                if (mode == null) {
+                    System.err.println("Unknown output mode '" + arg.substring("--output=".length()) + "'");
+                    System.err.println(USAGE);
+                    System.exit(2);
+                }
+            } else if (arg.startsWith("--tokens=")) {
+                tokensPath = Paths.get(arg.substring("--tokens=".length()));
+            } else if (arg.startsWith("--")) {
+                System.err.println("Unknown option '" + arg + "'");
+                System.err.println(USAGE);
+                System.exit(2);
+            } else {
+                sourcePath = Paths.get(arg);
+                filename = arg;
+            }
+        }
+        // Everything goes through one buffered writer, flushed once at the end
+        PrintWriter out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out), 1 << 16));
+        boolean hasErrors = false;
+        boolean failed = false; // the source could not be read
         try {
         	////
-            // Get the absolute path for the source file
-            Path sourcePath = Paths.get("src", "Compiler", filename);
-            
             // Check if file exists
             if (!Files.exists(sourcePath)) {
                 System.err.println("Error: Source file '" + filename + "' not found!");
                 System.err.println("Expected location: " + sourcePath.toAbsolutePath());
+                failed = true;
                 return;
             }
 
             // Read the content from the .ms file
             String code = readSourceFile(sourcePath);
-            System.out.println("=== Source Code ===");
-            System.out.println(code);
-            System.out.println("\n=================");
+            if (mode == OutputMode.FULL) {
+                out.println("=== Source Code ===");
+                out.println(code);
+                out.println("\n=================");
+            }
             
             // Create lexer instance
             Lexer lexer = new Lexer(code);
-            lexer.printDFATransitionTables();
+            if (mode == OutputMode.FULL) {
+                lexer.printDFATransitionTables(out);
+            }
             
             // Perform lexical analysis
-            System.out.println("=== Testing Lexical Analysis ===");
+            if (mode == OutputMode.FULL) {
+                out.println("=== Testing Lexical Analysis ===");
+            }
             lexer.tokenize();
             
-            // Display tokens
-            System.out.println("Tokens:");
-            for (Token token : lexer.getTokens()) {
-                System.out.printf("%s -> %s (Line: %d)%n", 
-                                token.type, token.value, token.lineNumber);
+            // Display tokens, or dump them in binary form
+            if (tokensPath != null) {
+                TokenDump.write(tokensPath, lexer.getTokens());
+                if (mode == OutputMode.FULL) {
+                    out.println("Tokens written to " + tokensPath);
+                }
+            } else if (mode == OutputMode.FULL) {
+                out.println("Tokens:");
+                LineIndex lineIndex = lexer.getLineIndex();
+                for (Token token : lexer.getTokens()) {
+                    out.printf("%s -> %s (Line: %d, Column: %d)%n", 
+                               token.type, token.value, lineIndex.lineOf(token.offset), lineIndex.columnOf(token.offset));
+                }
             }
             // Display token count
-            System.out.println("\nTotal Tokens: " + lexer.getTokens().size());
+            if (mode == OutputMode.FULL) {
+                out.println("\nTotal Tokens: " + lexer.getTokens().size());
+            }
+
+            // Semantic analysis: scope resolution, type checking and constant folding
+            // (and, for the full dump, lowering to IR in the same pass)
+            SemanticAnalyzer analyzer = new SemanticAnalyzer(lexer.getTokens(), lexer.getSymbolTable(),
+                                                             lexer.getErrorHandler(), lexer.getLineIndex());
+            if (mode == OutputMode.FULL) {
+                analyzer.generateCode();
+            }
+            analyzer.analyze();
+            hasErrors = lexer.getErrorHandler().hasErrors();
 
-            // Display symbol table
-            System.out.println("\n=== Symbol Table ===");
-            lexer.getSymbolTable().displayTable();
+            if (mode == OutputMode.SUMMARY) {
+                out.println("Tokens: " + lexer.getTokens().size());
+                out.println("Symbols: " + lexer.getSymbolTable().getEntries().size());
+                out.println("Constant expressions folded: " + analyzer.getFoldedExpressions());
+                out.println("Errors: " + lexer.getErrorHandler().getErrors().size());
+                for (String error : lexer.getErrorHandler().getErrors()) {
+                    out.println(error);
+                }
+            } else if (mode == OutputMode.FULL) {
+                out.println("\n=== Semantic Analysis ===");
+                out.println("Constant expressions folded: " + analyzer.getFoldedExpressions());
 
-            // Display any errors
-            System.out.println("\n=== Error Report ===");
-            lexer.getErrorHandler().displayErrors();
+                // Display symbol table
+                out.println("\n=== Symbol Table ===");
+                lexer.getSymbolTable().displayTable(out);
+
+                // Display any errors
+                out.println("\n=== Error Report ===");
+                lexer.getErrorHandler().displayErrors(out);
+
+                // Show and run the IR, if the program is free of errors
+                IRProgram program = analyzer.getProgram();
+                if (!hasErrors && program != null) {
+                    out.println("\n=== Intermediate Representation ===");
+                    out.print(program.disassemble());
+                    Interpreter interpreter = new Interpreter(program);
+                    out.println("\n=== Execution ===");
+                    try {
+                        out.println("main returned: " + interpreter.run());
+                        for (String name : program.globalTypes.keySet()) {
+                            out.println(name + " = " + interpreter.getGlobal(name));
+                        }
+                    } catch (RuntimeException e) {
+                        out.println(e.getMessage());
+                    }
+                }
+            }
+
+            if (stats) {
+                String report = CompilerMetrics.toJson(CompilerMetrics.symbolTableGauges(lexer.getSymbolTable()));
+                if (statsPath == null) {
+                    if (mode == OutputMode.FULL) {
+                        out.println("\n=== Stats ===");
+                    }
+                    out.print(report);
+                } else {
+                    Files.write(statsPath, report.getBytes());
+                }
+            }
             
         } catch (IOException e) {
-            System.err.println("Error reading source file: " + e.getMessage());
-            System.err.println("Stack trace:");
-            e.printStackTrace();
+            // e.g. a directory or a file without read permission
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            System.err.println("Error: Could not read '" + filename + "': " + cause);
+            failed = true;
+        } finally {
+            out.flush();
+            if (failed) {
+                System.exit(1);
+            }
+        }
+        if (hasErrors && mode != OutputMode.FULL) {
+            System.exit(1);
         }
     }
 
+    // The output mode named by value (any case), or null if there is none.
+    static OutputMode parseMode(String value) {
+        for (OutputMode mode : OutputMode.values()) {
+            if (mode.name().equalsIgnoreCase(value)) {
+                return mode;
+            }
+        }
+        return null;
+    }
 
     private static String readSourceFile(Path path) throws IOException {
         try {
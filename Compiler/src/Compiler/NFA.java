@@ -5,12 +5,44 @@ import java.util.*;
 public class NFA {
     public State startState;
     public State acceptState;
+    // Number of states; ids run from 0 to stateCount - 1 (set by RegexToNFA.convert)
+    public int stateCount;
     
     public NFA(State startState, State acceptState) {
         this.startState = startState;
         this.acceptState = acceptState;
     }
     
+    // Every state reachable from the start state, indexed by id. Ids must be unique
+    // within the NFA (RegexToNFA numbers them densely from 0).
+    public State[] statesById() {
+        State[] states = new State[Math.max(stateCount, 1)];
+        Deque<State> stack = new ArrayDeque<>();
+        stack.push(startState);
+        while (!stack.isEmpty()) {
+            State state = stack.pop();
+            if (state.id >= states.length) {
+                states = Arrays.copyOf(states, Math.max(state.id + 1, states.length * 2));
+            }
+            if (states[state.id] == state) {
+                continue;
+            }
+            if (states[state.id] != null) {
+                throw new IllegalStateException("Duplicate NFA state id " + state.id);
+            }
+            states[state.id] = state;
+            for (List<State> targets : state.transitions.values()) {
+                for (State next : targets) {
+                    stack.push(next);
+                }
+            }
+            for (State next : state.epsilonTransitions) {
+                stack.push(next);
+            }
+        }
+        return states;
+    }
+    
     // Inner class representing a state in the NFA.
     public static class State {
         public int id;
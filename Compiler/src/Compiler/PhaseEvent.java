@@ -0,0 +1,27 @@
+package Compiler;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// Flight recorder event for one run of a compiler phase (see CompilerMetrics.Timer).
+// Record with: java -XX:StartFlightRecording:filename=compile.jfr ...
+@Name("Compiler.Phase")
+@Label("Compiler Phase")
+@Category("Compiler")
+@Description("One run of a compiler pipeline phase")
+public class PhaseEvent extends Event {
+    @Label("Phase")
+    public String phase;
+
+    @Label("Bytes")
+    @DataAmount
+    public long bytes;
+
+    @Label("Items")
+    @Description("Tokens, states or instructions processed, depending on the phase")
+    public long items;
+}
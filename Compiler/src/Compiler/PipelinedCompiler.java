@@ -0,0 +1,181 @@
+package Compiler;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Runs the front end as three concurrent stages connected by bounded SPSC rings:
+//
+//   lexer (caller thread) --batches--> symbol table --batches--> semantic analysis
+//
+// The lexer publishes tokens in fixed-size batches. The symbol-table stage records them
+// as they arrive and forwards them. The analysis stage builds its compact token buffer
+// as batches arrive and runs its walk once the stream ends. Each stage only touches
+// shared state (error handler, symbol table) after the stages before it have finished,
+// and the end-of-stream signal on each ring orders those writes.
+public class PipelinedCompiler {
+    static final int BATCH_SIZE = 256;
+    static final int RING_CAPACITY = 64; // batches in flight per ring
+    // Initial size of the analyzer's token buffer; it doubles as tokens arrive, so a huge
+    // input does not preallocate arrays for its worst-case token count up front.
+    static final int INITIAL_TOKEN_CAPACITY = 1 << 14;
+
+    private final Map<TokenType, DFA> tokenDFAs;
+
+    public PipelinedCompiler(Map<TokenType, DFA> tokenDFAs) {
+        this.tokenDFAs = tokenDFAs;
+    }
+
+    public CompilationResult compile(String source) {
+        Lexer lexer = new Lexer(source, tokenDFAs);
+        SemanticAnalyzer analyzer = new SemanticAnalyzer(lexer.getSymbolTable(), lexer.getErrorHandler(),
+                                                         lexer.getLineIndex(),
+                                                         Math.min(source.length() / 4, INITIAL_TOKEN_CAPACITY));
+        SpscRingBuffer<Token[]> lexed = new SpscRingBuffer<>(RING_CAPACITY);
+        SpscRingBuffer<Token[]> recorded = new SpscRingBuffer<>(RING_CAPACITY);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        Thread symbolStage = startStage("symbol-table", failure, lexed, recorded, () -> {
+            for (Token[] batch = lexed.take(); batch != null; batch = lexed.take()) {
+                for (Token token : batch) {
+                    lexer.acceptForSymbolTable(token);
+                }
+                recorded.put(batch);
+            }
+            lexer.finishSymbolTable();
+            recorded.close();
+        });
+        Thread analysisStage = startStage("semantic-analysis", failure, lexed, recorded, () -> {
+            for (Token[] batch = recorded.take(); batch != null; batch = recorded.take()) {
+                for (Token token : batch) {
+                    analyzer.accept(token);
+                }
+            }
+            analyzer.analyze();
+        });
+
+        try {
+            Token[] batch = new Token[BATCH_SIZE];
+            int[] filled = {0};
+            Token[][] current = {batch};
+            lexer.lex(token -> {
+                current[0][filled[0]++] = token;
+                if (filled[0] == BATCH_SIZE) {
+                    lexed.put(current[0]);
+                    current[0] = new Token[BATCH_SIZE];
+                    filled[0] = 0;
+                }
+            });
+            if (filled[0] > 0) {
+                lexed.put(Arrays.copyOf(current[0], filled[0]));
+            }
+            lexed.close();
+        } catch (Throwable t) {
+            // Errors too (StackOverflowError, OutOfMemoryError): the stages must be
+            // released, or they stay parked on the rings and join() never returns
+            failure.compareAndSet(null, t);
+            lexed.abort();
+            recorded.abort();
+        }
+
+        join(symbolStage);
+        join(analysisStage);
+        if (failure.get() instanceof Error) {
+            throw (Error) failure.get();
+        }
+        if (failure.get() != null) {
+            throw new RuntimeException("Pipelined compilation failed", failure.get());
+        }
+        return new CompilationResult(lexer.getTokens(), lexer.getSymbolTable(), lexer.getErrorHandler());
+    }
+
+    private static Thread startStage(String name, AtomicReference<Throwable> failure,
+                                     SpscRingBuffer<?> lexed, SpscRingBuffer<?> recorded, Runnable body) {
+        Thread thread = new Thread(() -> {
+            try {
+                body.run();
+            } catch (Throwable t) {
+                failure.compareAndSet(null, t);
+                lexed.abort();
+                recorded.abort();
+            }
+        }, "pipeline-" + name);
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    private static void join(Thread thread) {
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for " + thread.getName(), e);
+        }
+    }
+
+    // Compares sequential and pipelined compilation of a replicated source file.
+    // Usage: PipelinedCompiler [file.ms] [copies] [iterations]
+    public static void main(String[] args) throws IOException {
+        Path sourcePath = args.length > 0 ? Paths.get(args[0]) : Paths.get("src", "Compiler", "code.ms");
+        int copies = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+        int iterations = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+
+        String code = new String(Files.readAllBytes(sourcePath));
+        StringBuilder input = new StringBuilder();
+        for (int i = 0; i < copies; i++) {
+            input.append(code).append('\n');
+        }
+        String source = input.toString();
+
+        Map<TokenType, DFA> tokenDFAs = new Lexer("").getTokenDFAs();
+        PipelinedCompiler pipelined = new PipelinedCompiler(tokenDFAs);
+
+        long sequentialBest = Long.MAX_VALUE;
+        long pipelinedBest = Long.MAX_VALUE;
+        CompilationResult expected = null;
+        CompilationResult actual = null;
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            expected = CompilationResult.compile(source, tokenDFAs);
+            sequentialBest = Math.min(sequentialBest, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            actual = pipelined.compile(source);
+            pipelinedBest = Math.min(pipelinedBest, System.nanoTime() - start);
+        }
+        if (!sameResult(expected, actual)) {
+            System.err.println("Pipelined result differs from sequential compilation");
+            return;
+        }
+        System.out.printf("Input: %d chars, %d tokens, %d cores%n", source.length(),
+                          actual.getTokens().size(), Runtime.getRuntime().availableProcessors());
+        System.out.printf("Sequential: %.3f ms (best of %d)%n", sequentialBest / 1e6, iterations);
+        System.out.printf("Pipelined:  %.3f ms (best of %d)%n", pipelinedBest / 1e6, iterations);
+    }
+
+    private static boolean sameResult(CompilationResult a, CompilationResult b) {
+        if (a.getTokens().size() != b.getTokens().size()
+                || !a.getErrorHandler().getErrors().equals(b.getErrorHandler().getErrors())) {
+            return false;
+        }
+        for (int i = 0; i < a.getTokens().size(); i++) {
+            Token x = a.getTokens().get(i);
+            Token y = b.getTokens().get(i);
+            if (x.type != y.type || x.offset != y.offset || !x.value.equals(y.value)) {
+                return false;
+            }
+        }
+        for (SymbolTable.SymbolEntry entry : a.getSymbolTable().getEntries()) {
+            SymbolTable.SymbolEntry other = b.getSymbolTable().getSymbol(entry.identifierName);
+            if (other == null || !entry.dataType.equals(other.dataType) || !entry.scope.equals(other.scope)
+                    || !Objects.equals(entry.value, other.value)) {
+                return false;
+            }
+        }
+        return a.getSymbolTable().getEntries().size() == b.getSymbolTable().getEntries().size();
+    }
+}
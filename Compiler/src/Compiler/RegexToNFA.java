@@ -2,24 +2,52 @@ package Compiler;
 
 import java.util.*;
 /////////
+// State ids are dense and start at 0 in every NFA returned by convert(), so they can
+// index arrays and the numbering depends only on the regex. A converter keeps the
+// counter for the conversion in progress, so use one instance per thread.
 public class RegexToNFA {
     private int stateCount = 0;
     //////
+    // Prints each conversion step; enable with -Dcompiler.debugRegex=true
+    static final boolean DEBUG = Boolean.getBoolean("compiler.debugRegex");
+    
+    private static final CompilerMetrics.Timer CONVERT_TIMER = CompilerMetrics.timer("regexToNfa");
+    private static final CompilerMetrics.Counter NFA_STATES = CompilerMetrics.counter("nfa.states");
     
     public NFA convert(String regex) {
-    	
-        System.out.println("Original regex: " + regex);
+        stateCount = 0;
+        try (CompilerMetrics.Phase phase = CONVERT_TIMER.start()) {
+            NFA nfa = buildNFA(regex);
+            nfa.stateCount = stateCount;
+            NFA_STATES.add(stateCount);
+            phase.setWork(regex.length(), stateCount);
+            return nfa;
+        }
+    }
+    
+    private NFA buildNFA(String regex) {
+        if (DEBUG) {
+            System.out.println("Original regex: " + regex);
+        }
         String preprocessed = preprocessRegex(regex);
-        System.out.println("Preprocessed regex: " + preprocessed);
+        if (DEBUG) {
+            System.out.println("Preprocessed regex: " + preprocessed);
+        }
         
         List<String> tokens = tokenizeRegex(preprocessed);
-        System.out.println("Tokenized regex: " + tokens);
+        if (DEBUG) {
+            System.out.println("Tokenized regex: " + tokens);
+        }
         
         List<String> concatTokens = insertConcatenationOperator(tokens);
-        System.out.println("Tokens after concatenation insertion: " + concatTokens);
+        if (DEBUG) {
+            System.out.println("Tokens after concatenation insertion: " + concatTokens);
+        }
         
         List<String> postfixTokens = infixToPostfix(concatTokens);
-        System.out.println("Postfix tokens: " + postfixTokens);
+        if (DEBUG) {
+            System.out.println("Postfix tokens: " + postfixTokens);
+        }
         
         Stack<NFA> stack = new Stack<>();
         for (String token : postfixTokens) {
@@ -30,6 +58,12 @@ public class RegexToNFA {
                 }
                 NFA nfaStar = stack.pop();
                 stack.push(applyKleeneStar(nfaStar));
+            } else if (token.equals("+")) {
+                if (stack.isEmpty()) {
+                    throw new RuntimeException("Stack empty when expecting operand for '+'");
+                }
+                NFA nfaPlus = stack.pop();
+                stack.push(applyOneOrMore(nfaPlus));
             } else if (token.equals("·")) { // explicit concatenation operator
                 if (stack.size() < 2) {
                     throw new RuntimeException("Stack has fewer than 2 operands for concatenation");
@@ -56,21 +90,14 @@ public class RegexToNFA {
     }
    
     
-    // Preprocess the regex (e.g., expand character classes, handle '+' operator if needed)
+    // Preprocess the regex (expand character classes). '+' is a real postfix operator
+    // (see applyOneOrMore); rewriting X+ as X·X* textually broke on nested groups and
+    // missed operands such as '.'.
     private String preprocessRegex(String regex) {
         // Expand [a-z] into (a|b|...|z)
         regex = regex.replaceAll("\\[a-z\\]", "(a|b|c|d|e|f|g|h|i|j|k|l|m|n|o|p|q|r|s|t|u|v|w|x|y|z)");
         // Expand [0-9] into (0|1|2|3|4|5|6|7|8|9)
         regex = regex.replaceAll("\\[0-9\\]", "(0|1|2|3|4|5|6|7|8|9)");
-        // Convert + for group operands: (X)+ becomes X·X*
-        regex = regex.replaceAll("(\\([^\\)]+\\))\\+", "$1·$1*");
-        // Convert + for single literal operands: a+ becomes a·a*
-        regex = regex.replaceAll("([a-zA-Z0-9])\\+", "$1·$1*");
-        // *New rules:*
-        // Convert + for a character class: [^]+ becomes [^]·[^]
-        regex = regex.replaceAll("(\\[[^\\]]+\\])\\+", "$1·$1*");
-        // Convert + for an escaped operator (non-alphanumeric): e.g., \+ becomes \·\**
-        regex = regex.replaceAll("(\\\\[^a-zA-Z0-9])\\+", "$1·$1*");
         return regex;
     }
     
@@ -110,9 +137,9 @@ public class RegexToNFA {
             result.add(token);
             if (i < tokens.size() - 1) {
                 String token2 = tokens.get(i + 1);
-                // If token is a literal or a closing parenthesis or a Kleene star
+                // If token is a literal or a closing parenthesis or a postfix operator
                 // and token2 is a literal or an opening parenthesis, insert "·".
-                if ((isLiteral(token) || token.equals("*") || token.equals(")"))
+                if ((isLiteral(token) || token.equals("*") || token.equals("+") || token.equals(")"))
                         && (isLiteral(token2) || token2.equals("("))) {
                     result.add("·");
                 }
@@ -140,7 +167,7 @@ public class RegexToNFA {
                 }
                 stack.pop(); // Remove "("
             } else {
-                // Operator: "*", "·", or "|"
+                // Operator: "*", "+", "·", or "|"
                 while (!stack.isEmpty() && precedence(stack.peek()) >= precedence(token)) {
                     output.add(stack.pop());
                 }
@@ -154,15 +181,17 @@ public class RegexToNFA {
     }
     
     // Determines if a token is considered a literal.
-    // Here, tokens that are operators ("*", "·", "|", "(", ")") are not literals.
+    // Here, tokens that are operators ("*", "+", "·", "|", "(", ")") are not literals.
     private boolean isLiteral(String token) {
-        return !(token.equals("*") || token.equals("·") || token.equals("|") || token.equals("(") || token.equals(")"));
+        return !(token.equals("*") || token.equals("+") || token.equals("·") || token.equals("|")
+                 || token.equals("(") || token.equals(")"));
     }
     
     // Defines operator precedence.
     private int precedence(String op) {
         switch (op) {
             case "*": return 3;
+            case "+": return 3;
             case "·": return 2;
             case "|": return 1;
             default:  return 0;
@@ -258,6 +287,16 @@ public class RegexToNFA {
         return new NFA(start, accept);
     }
     
+    // One or more: like the Kleene star, but without the edge that skips the operand.
+    private NFA applyOneOrMore(NFA nfa) {
+        NFA.State start = new NFA.State(stateCount++);
+        NFA.State accept = new NFA.State(stateCount++);
+        start.addEpsilonTransition(nfa.startState);
+        nfa.acceptState.addEpsilonTransition(nfa.startState);
+        nfa.acceptState.addEpsilonTransition(accept);
+        return new NFA(start, accept);
+    }
+    
     // Applies the Kleene star operation to an NFA.
     private NFA applyKleeneStar(NFA nfa) {
         NFA.State start = new NFA.State(stateCount++);
@@ -0,0 +1,66 @@
+package Compiler;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+// Compares the table-driven Lexer against the generated switch-based scanner.
+// Usage: ScannerBenchmark [file.ms] [copies] [iterations]
+public class ScannerBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        Path sourcePath = args.length > 0 ? Paths.get(args[0]) : Paths.get("src", "Compiler", "code.ms");
+        int copies = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+        int iterations = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+
+        String code = new String(Files.readAllBytes(sourcePath));
+        StringBuilder input = new StringBuilder();
+        for (int i = 0; i < copies; i++) {
+            input.append(code).append('\n');
+        }
+        String source = input.toString();
+
+        // Both scanners must agree before their timings mean anything.
+        Lexer reference = new Lexer(source);
+        reference.tokenize();
+        List<Token> generated = GeneratedScanner.tokenize(source, new ErrorHandler());
+        if (!sameTokens(reference.getTokens(), generated)) {
+            System.err.println("Generated scanner disagrees with Lexer; regenerate it with ScannerGenerator.");
+            return;
+        }
+        System.out.printf("Input: %d chars, %d tokens%n", source.length(), generated.size());
+
+        long interpreted = Long.MAX_VALUE;
+        long compiled = Long.MAX_VALUE;
+        for (int i = 0; i < iterations; i++) {
+            Lexer lexer = new Lexer(source);
+            long start = System.nanoTime();
+            lexer.tokenize();
+            interpreted = Math.min(interpreted, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            GeneratedScanner.tokenize(source, new ErrorHandler());
+            compiled = Math.min(compiled, System.nanoTime() - start);
+        }
+        // Lexer.tokenize() also runs its symbol-table pass, which is small next to scanning.
+        System.out.printf("Interpreted DFA tables: %.3f ms (best of %d)%n", interpreted / 1e6, iterations);
+        System.out.printf("Generated scanner:      %.3f ms (best of %d)%n", compiled / 1e6, iterations);
+        System.out.printf("Speedup: %.1fx%n", (double) interpreted / compiled);
+    }
+
+    private static boolean sameTokens(List<Token> expected, List<Token> actual) {
+        if (expected.size() != actual.size()) {
+            return false;
+        }
+        for (int i = 0; i < expected.size(); i++) {
+            Token a = expected.get(i);
+            Token b = actual.get(i);
+            if (a.type != b.type || !a.value.equals(b.value) || a.offset != b.offset) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,315 @@
+package Compiler;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+// Emits a standalone Java scanner from the token DFAs (in the spirit of JFlex).
+// Every token DFA becomes a flat switch-based method, so the JIT sees plain
+// int/char control flow instead of HashMap lookups over DFANode graphs.
+public class ScannerGenerator {
+    private final Map<TokenType, DFA> tokenDFAs;
+    private final Set<String> keywords;
+
+    public ScannerGenerator(Map<TokenType, DFA> tokenDFAs, Set<String> keywords) {
+        this.tokenDFAs = tokenDFAs;
+        this.keywords = keywords;
+    }
+
+    static final Path DEFAULT_TARGET = Paths.get("src", "Compiler", "GeneratedScanner.java");
+
+    // Regenerates GeneratedScanner.java from the lexer's current token definitions.
+    // With --check it writes nothing and exits with status 1 if the checked-in file is
+    // not what regeneration would produce.
+    // Usage: ScannerGenerator [--check] [target.java]
+    public static void main(String[] args) {
+        boolean check = args.length > 0 && args[0].equals("--check");
+        Path target = args.length > (check ? 1 : 0) ? Paths.get(args[args.length - 1]) : DEFAULT_TARGET;
+        Lexer lexer = new Lexer("");
+        ScannerGenerator generator = new ScannerGenerator(lexer.getTokenDFAs(), Lexer.KEYWORDS);
+        try {
+            if (check) {
+                if (!generator.isUpToDate(target)) {
+                    System.err.println(target + " is out of date; regenerate it with ScannerGenerator");
+                    System.exit(1);
+                }
+                System.out.println(target + " is up to date");
+                return;
+            }
+            Files.write(target, generator.generate("GeneratedScanner").getBytes());
+            System.out.println("Generated scanner written to " + target.toAbsolutePath());
+        } catch (IOException e) {
+            System.err.println("Error writing generated scanner: " + e.getMessage());
+        }
+    }
+
+    // Whether the file at target is exactly what generate() produces for its class name.
+    public boolean isUpToDate(Path target) throws IOException {
+        if (!Files.exists(target)) {
+            return false;
+        }
+        String fileName = target.getFileName().toString();
+        String className = fileName.endsWith(".java") ? fileName.substring(0, fileName.length() - 5) : fileName;
+        return new String(Files.readAllBytes(target)).equals(generate(className));
+    }
+
+    // Produces the Java source of a scanner class with the given name.
+    public String generate(String className) {
+        StringBuilder out = new StringBuilder();
+        out.append("package Compiler;\n\n");
+        out.append("import java.util.ArrayList;\n");
+        out.append("import java.util.List;\n\n");
+        out.append("// Generated by ScannerGenerator from the token DFAs in Lexer. Do not edit by hand.\n");
+        out.append("public final class ").append(className).append(" {\n\n");
+        out.append("    private ").append(className).append("() {\n    }\n\n");
+        emitTokenize(out);
+        emitIsKeyword(out);
+        for (Map.Entry<TokenType, DFA> entry : tokenDFAs.entrySet()) {
+            emitMatcher(out, entry.getKey(), entry.getValue());
+        }
+        out.append("}\n");
+        return out.toString();
+    }
+
+    // Main loop: same whitespace handling, run fast paths and token priority as
+    // Lexer.lexFrom(). Instead of trying every matcher in turn, a switch on the first
+    // character calls only the matchers whose start state has a transition on it.
+    private void emitTokenize(StringBuilder out) {
+        out.append("    public static List<Token> tokenize(String input, ErrorHandler errorHandler) {\n");
+        out.append("        List<Token> tokens = new ArrayList<>();\n");
+        out.append("        CharRunScanner scanner = new CharRunScanner(input);\n");
+        out.append("        int length = input.length();\n");
+        out.append("        int pos = 0;\n");
+        out.append("        LineIndex lineIndex = null; // only needed to report errors\n");
+        out.append("        while (pos < length) {\n");
+        out.append("            char c = input.charAt(pos);\n");
+        out.append("            if (Character.isWhitespace(c)) {\n");
+        out.append("                pos = scanner.skipWhitespace(pos);\n");
+        out.append("                continue;\n");
+        out.append("            }\n");
+        out.append("            Token run = Lexer.matchRun(input, scanner, c, pos);\n");
+        out.append("            if (run != null) {\n");
+        out.append("                tokens.add(run);\n");
+        out.append("                pos += run.value.length();\n");
+        out.append("                continue;\n");
+        out.append("            }\n");
+        out.append("            TokenType type = null;\n");
+        out.append("            int end = -1;\n");
+        out.append("            switch (c) {\n");
+        for (Map.Entry<List<TokenType>, List<Character>> group : candidatesByFirstChar().entrySet()) {
+            out.append("                case ");
+            List<Character> symbols = group.getValue();
+            for (int i = 0; i < symbols.size(); i++) {
+                if (i > 0) {
+                    out.append(", ");
+                }
+                out.append(charLiteral(symbols.get(i)));
+            }
+            out.append(":\n");
+            List<TokenType> candidates = group.getKey();
+            for (int i = 0; i < candidates.size(); i++) {
+                TokenType candidate = candidates.get(i);
+                if (i + 1 < candidates.size()) {
+                    out.append("                    if ((end = ").append(matcherName(candidate)).append("(input, pos)) > pos) {\n");
+                    out.append("                        type = TokenType.").append(candidate.name()).append(";\n");
+                    out.append("                        break;\n");
+                    out.append("                    }\n");
+                } else {
+                    out.append("                    end = ").append(matcherName(candidate)).append("(input, pos);\n");
+                    out.append("                    type = TokenType.").append(candidate.name()).append(";\n");
+                    out.append("                    break;\n");
+                }
+            }
+        }
+        out.append("                default:\n");
+        out.append("                    break;\n");
+        out.append("            }\n");
+        out.append("            if (end > pos) {\n");
+        out.append("                String value = input.substring(pos, end);\n");
+        out.append("                if (type == TokenType.IDENTIFIER && isKeyword(value)) {\n");
+        out.append("                    type = TokenType.KEYWORD;\n");
+        out.append("                }\n");
+        out.append("                tokens.add(new Token(type, value, pos));\n");
+        out.append("                pos = end;\n");
+        out.append("                continue;\n");
+        out.append("            }\n");
+        out.append("            if (lineIndex == null) {\n");
+        out.append("                lineIndex = new LineIndex(input);\n");
+        out.append("            }\n");
+        out.append("            errorHandler.addError(\"Unrecognized token at line \" + lineIndex.lineOf(pos) +\n");
+        out.append("                                  \", column \" + lineIndex.columnOf(pos), pos);\n");
+        out.append("            pos++;\n");
+        out.append("        }\n");
+        out.append("        return tokens;\n");
+        out.append("    }\n\n");
+    }
+
+    // For every character some token can start with, the token types (in priority order)
+    // whose start state has a transition on it; characters with the same list are grouped,
+    // in ascending order of their first character.
+    private Map<List<TokenType>, List<Character>> candidatesByFirstChar() {
+        SortedMap<Character, List<TokenType>> candidates = new TreeMap<>();
+        for (Map.Entry<TokenType, DFA> entry : tokenDFAs.entrySet()) {
+            DFA.DFANode start = entry.getValue().getStates().get(0);
+            for (Character symbol : start.transitions.keySet()) {
+                candidates.computeIfAbsent(symbol, k -> new ArrayList<>()).add(entry.getKey());
+            }
+        }
+        Map<List<TokenType>, List<Character>> groups = new LinkedHashMap<>();
+        for (Map.Entry<Character, List<TokenType>> entry : candidates.entrySet()) {
+            groups.computeIfAbsent(entry.getValue(), k -> new ArrayList<>()).add(entry.getKey());
+        }
+        return groups;
+    }
+
+    private void emitIsKeyword(StringBuilder out) {
+        out.append("    private static boolean isKeyword(String value) {\n");
+        out.append("        switch (value) {\n");
+        out.append("            case ");
+        int i = 0;
+        for (String keyword : keywords) {
+            if (i++ > 0) {
+                out.append(", ");
+            }
+            out.append('"').append(keyword).append('"');
+        }
+        out.append(":\n");
+        out.append("                return true;\n");
+        out.append("            default:\n");
+        out.append("                return false;\n");
+        out.append("        }\n");
+        out.append("    }\n\n");
+    }
+
+    // Emits a longest-prefix matcher returning the end offset of the match, or -1.
+    private void emitMatcher(StringBuilder out, TokenType type, DFA dfa) {
+        List<DFA.DFANode> states = dfa.getStates();
+        int[] classOf = minimize(states);
+        // One representative DFA node per equivalence class, in class order.
+        List<DFA.DFANode> representatives = new ArrayList<>();
+        for (int i = 0; i < states.size(); i++) {
+            if (classOf[i] == representatives.size()) {
+                representatives.add(states.get(i));
+            }
+        }
+        Map<DFA.DFANode, Integer> stateIds = new HashMap<>();
+        for (int i = 0; i < states.size(); i++) {
+            stateIds.put(states.get(i), classOf[i]);
+        }
+
+        out.append("    // ").append(type.name()).append(": ").append(representatives.size())
+           .append(" states (").append(states.size()).append(" before minimization)\n");
+        out.append("    private static int ").append(matcherName(type)).append("(String input, int pos) {\n");
+        out.append("        int length = input.length();\n");
+        out.append("        int state = 0;\n");
+        out.append("        int lastAccept = -1;\n");
+        out.append("        for (int i = pos; i < length; i++) {\n");
+        out.append("            char c = input.charAt(i);\n");
+        out.append("            switch (state) {\n");
+        for (int id = 0; id < representatives.size(); id++) {
+            DFA.DFANode node = representatives.get(id);
+            out.append("                case ").append(id).append(":\n");
+            if (node.transitions.isEmpty()) {
+                out.append("                    return lastAccept;\n");
+                continue;
+            }
+            // Group the symbols by target state, keeping ascending character order.
+            Map<Integer, List<Character>> byTarget = new LinkedHashMap<>();
+            for (Character symbol : new TreeSet<>(node.transitions.keySet())) {
+                byTarget.computeIfAbsent(stateIds.get(node.transitions.get(symbol)), k -> new ArrayList<>()).add(symbol);
+            }
+            out.append("                    switch (c) {\n");
+            for (Map.Entry<Integer, List<Character>> group : byTarget.entrySet()) {
+                int target = group.getKey();
+                out.append("                        case ");
+                List<Character> symbols = group.getValue();
+                for (int i = 0; i < symbols.size(); i++) {
+                    if (i > 0) {
+                        out.append(", ");
+                    }
+                    out.append(charLiteral(symbols.get(i)));
+                }
+                out.append(":\n");
+                out.append("                            state = ").append(target).append(";\n");
+                if (representatives.get(target).isAccept) {
+                    out.append("                            lastAccept = i + 1;\n");
+                }
+                out.append("                            break;\n");
+            }
+            out.append("                        default:\n");
+            out.append("                            return lastAccept;\n");
+            out.append("                    }\n");
+            out.append("                    break;\n");
+        }
+        out.append("                default:\n");
+        out.append("                    return lastAccept;\n");
+        out.append("            }\n");
+        out.append("        }\n");
+        out.append("        return lastAccept;\n");
+        out.append("    }\n\n");
+    }
+
+    // Moore partition refinement: returns the equivalence class of every state.
+    // Classes are numbered by first occurrence, so the start state is always class 0.
+    private static int[] minimize(List<DFA.DFANode> states) {
+        Map<DFA.DFANode, Integer> index = new HashMap<>();
+        Set<Character> alphabet = new TreeSet<>();
+        for (int i = 0; i < states.size(); i++) {
+            index.put(states.get(i), i);
+            alphabet.addAll(states.get(i).transitions.keySet());
+        }
+        int[] classOf = new int[states.size()];
+        int classCount = 0;
+        while (true) {
+            Map<List<Integer>, Integer> signatures = new HashMap<>();
+            int[] next = new int[states.size()];
+            for (int i = 0; i < states.size(); i++) {
+                DFA.DFANode node = states.get(i);
+                List<Integer> signature = new ArrayList<>();
+                signature.add(node.isAccept ? 1 : 0);
+                signature.add(classCount == 0 ? 0 : classOf[i]);
+                for (Character symbol : alphabet) {
+                    DFA.DFANode target = node.transitions.get(symbol);
+                    signature.add(target == null || classCount == 0 ? -1 : classOf[index.get(target)]);
+                }
+                Integer id = signatures.get(signature);
+                if (id == null) {
+                    id = signatures.size();
+                    signatures.put(signature, id);
+                }
+                next[i] = id;
+            }
+            classOf = next;
+            if (signatures.size() == classCount) {
+                return classOf;
+            }
+            classCount = signatures.size();
+        }
+    }
+
+    // SINGLE_COMMENT -> matchSingleComment
+    private static String matcherName(TokenType type) {
+        StringBuilder name = new StringBuilder("match");
+        for (String part : type.name().split("_")) {
+            name.append(part.charAt(0)).append(part.substring(1).toLowerCase());
+        }
+        return name.toString();
+    }
+
+    private static String charLiteral(char c) {
+        switch (c) {
+            case '\n': return "'\\n'";
+            case '\r': return "'\\r'";
+            case '\t': return "'\\t'";
+            case '\'': return "'\\''";
+            case '\\': return "'\\\\'";
+            default:
+                if (c >= 32 && c < 127) {
+                    return "'" + c + "'";
+                }
+                return String.format("'\\u%04x'", (int) c);
+        }
+    }
+}
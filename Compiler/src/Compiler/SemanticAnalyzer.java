@@ -0,0 +1,788 @@
+package Compiler;
+
+import java.util.*;
+
+// Semantic analysis over the token stream: resolves every identifier use against the
+// scoped declarations, type-checks operators, assignments and conditions, and folds
+// constant expressions. Globals with a literal initializer that are never assigned
+// afterwards count as constants, and declarations with a folded initializer get their
+// value recorded in the symbol table.
+//
+// The analysis is a single left-to-right walk (after a cheap pre-scan for assignment
+// targets) over a compact copy of the tokens with comments removed. When asked to
+// (generateCode()), the same walk drives an IRCompiler, so the IR is produced from the
+// program exactly as it was parsed and checked.
+public class SemanticAnalyzer {
+    private static final String ERROR_TYPE = "error";
+    private static final CompilerMetrics.Timer ANALYZE_TIMER = CompilerMetrics.timer("semanticAnalysis");
+    private static final CompilerMetrics.Counter FOLDED = CompilerMetrics.counter("semantic.foldedExpressions");
+
+    // Compact token buffer: parallel arrays, comments stripped.
+    private TokenType[] types;
+    private String[] values;
+    private int[] offsets;
+    private int count = 0;
+    private int pos = 0;
+
+    private final SymbolTable symbolTable;
+    private final ErrorHandler errorHandler;
+    private final LineIndex lineIndex;
+
+    // Innermost scope first (global scope last); each maps a name to its declaration.
+    private final Deque<Map<String, Binding>> scopes = new ArrayDeque<>();
+    // Compact index -> compact index of the declaration an identifier resolved to, or -1
+    private int[] declarationOf;
+    private final Map<String, Object> globalConstants = new HashMap<>();
+    private final Set<String> assignedNames = new HashSet<>();
+    // Declarations by compact index of the declaring identifier
+    private final Map<Integer, Declaration> declarations = new HashMap<>();
+    private final Set<String> declaredNames = new HashSet<>();
+    private int functionDepth = 0; // > 0 inside a function body
+    private String functionReturnType = null; // null when the function declares none
+    private String functionName = null;
+    private int foldedExpressions = 0;
+    private int errorCount = 0;
+
+    private IRCompiler ir; // null unless generateCode() was called
+    private IRProgram program;
+
+    // A declared name: its type, the compact index of the declaring identifier and, when
+    // generating code, its IR slot (-1 for functions).
+    private static class Binding {
+        final String type;
+        final int index;
+        final int slot;
+
+        Binding(String type, int index, int slot) {
+            this.type = type;
+            this.index = index;
+            this.slot = slot;
+        }
+    }
+
+    // What a declaration introduces, for tools such as the language server's hover.
+    public static class Declaration {
+        public final String name;
+        public final String type;  // a data type, or "function"
+        public final String scope; // "global", or the enclosing function's name ("local" outside one)
+        public final boolean first; // the file's first declaration of this name
+        public String value;       // folded initializer, formatted as in the symbol table, or null
+
+        Declaration(String name, String type, String scope, boolean first) {
+            this.name = name;
+            this.type = type;
+            this.scope = scope;
+            this.first = first;
+        }
+    }
+
+    // Result of analysing an expression: its type and, if known, its constant value.
+    private static class Value {
+        final String type;
+        final Object constant; // Long, Double, Boolean, Character or String
+
+        Value(String type, Object constant) {
+            this.type = type;
+            this.constant = constant;
+        }
+    }
+
+    public SemanticAnalyzer(List<Token> tokens, SymbolTable symbolTable, ErrorHandler errorHandler, LineIndex lineIndex) {
+        this(symbolTable, errorHandler, lineIndex, tokens.size());
+        for (Token token : tokens) {
+            append(token);
+        }
+    }
+
+    // Streaming form: feed tokens with accept(), then call analyze().
+    public SemanticAnalyzer(SymbolTable symbolTable, ErrorHandler errorHandler, LineIndex lineIndex, int expectedTokens) {
+        this.symbolTable = symbolTable;
+        this.errorHandler = errorHandler;
+        this.lineIndex = lineIndex;
+        int capacity = Math.max(16, expectedTokens);
+        types = new TokenType[capacity];
+        values = new String[capacity];
+        offsets = new int[capacity];
+    }
+
+    // Appends a token to the compact buffer, dropping comments.
+    public void accept(Token token) {
+        append(token);
+    }
+
+    private void append(Token token) {
+        if (token.type == TokenType.SINGLE_COMMENT || token.type == TokenType.MULTI_COMMENT) {
+            return;
+        }
+        if (count == types.length) {
+            types = Arrays.copyOf(types, count * 2);
+            values = Arrays.copyOf(values, count * 2);
+            offsets = Arrays.copyOf(offsets, count * 2);
+        }
+        types[count] = token.type;
+        values[count] = token.value;
+        offsets[count] = token.offset;
+        count++;
+    }
+
+    // Also lowers the program to IR during analyze(); call it before analyze().
+    public void generateCode() {
+        ir = new IRCompiler();
+    }
+
+    public void analyze() {
+        try (CompilerMetrics.Phase phase = ANALYZE_TIMER.start()) {
+            collectAssignedNames();
+            declarationOf = new int[count];
+            Arrays.fill(declarationOf, -1);
+            scopes.push(new HashMap<>());
+            while (pos < count) {
+                analyzeTopLevel();
+            }
+            if (ir != null && errorCount == 0) {
+                program = ir.finish();
+            }
+            FOLDED.add(foldedExpressions);
+            phase.setWork(0, count);
+        }
+    }
+
+    // Source offset of the declaration that the identifier at useOffset resolved to
+    // (a declaration resolves to itself), or -1 if it did not resolve. Valid after analyze().
+    public int declarationOffset(int useOffset) {
+        int index = Arrays.binarySearch(offsets, 0, count, useOffset);
+        if (index < 0 || declarationOf[index] < 0) {
+            return -1;
+        }
+        return offsets[declarationOf[index]];
+    }
+
+    // The declaration whose identifier starts at offset (see declarationOffset()), or null.
+    // Valid after analyze().
+    public Declaration declarationAt(int offset) {
+        int index = Arrays.binarySearch(offsets, 0, count, offset);
+        return index < 0 ? null : declarations.get(index);
+    }
+
+    // The lowered program, or null if generateCode() was not called or analysis reported
+    // errors. Valid after analyze().
+    public IRProgram getProgram() {
+        return program;
+    }
+
+    // Number of operator expressions that were reduced to a constant.
+    public int getFoldedExpressions() {
+        return foldedExpressions;
+    }
+
+    // Pre-scan: any "name =" that is not a declaration makes "name" non-constant.
+    private void collectAssignedNames() {
+        for (int i = 0; i + 1 < count; i++) {
+            if (types[i] == TokenType.IDENTIFIER && types[i + 1] == TokenType.ASSIGN
+                    && (i == 0 || !isDataType(values[i - 1]))) {
+                assignedNames.add(values[i]);
+            }
+        }
+    }
+
+    // program := { global declaration | function | statement }
+    private void analyzeTopLevel() {
+        if (isKeyword(pos, "global")) {
+            pos++;
+            if (pos < count && isDataType(values[pos])) {
+                analyzeDeclaration(true);
+            } else {
+                error(pos - 1, "Expected a data type after 'global'");
+            }
+        } else if (isKeyword(pos, "function")) {
+            analyzeFunction();
+        } else if (types[pos] == TokenType.RBRACE) {
+            error(pos, "Unmatched '}'");
+            pos++;
+        } else {
+            analyzeStatement();
+        }
+    }
+
+    private void analyzeStatement() {
+        String value = values[pos];
+        if (types[pos] == TokenType.KEYWORD) {
+            switch (value) {
+                case "while":
+                    analyzeWhile();
+                    return;
+                case "if":
+                    analyzeIf();
+                    return;
+                case "else":
+                    error(pos, "'else' without a matching 'if'");
+                    pos++;
+                    return;
+                case "return":
+                    analyzeReturn();
+                    return;
+                case "global":
+                    // The declaration that follows is analyzed as a local one
+                    error(pos, "'global' declarations are only allowed at the top level");
+                    pos++;
+                    return;
+                case "function":
+                    error(pos, "Functions can only be declared at the top level");
+                    analyzeFunction();
+                    return;
+                default:
+                    if (isDataType(value)) {
+                        analyzeDeclaration(scopes.size() == 1);
+                        return;
+                    }
+            }
+        } else if (types[pos] == TokenType.IDENTIFIER && pos + 1 < count && types[pos + 1] == TokenType.ASSIGN) {
+            analyzeAssignment();
+            return;
+        } else if (types[pos] == TokenType.LBRACE) {
+            analyzeBlock();
+            return;
+        }
+        error(pos, "Unexpected token '" + value + "'");
+        pos++;
+    }
+
+    // { statement... } in a new scope
+    private void analyzeBlock() {
+        pos++;
+        scopes.push(new HashMap<>());
+        while (pos < count && types[pos] != TokenType.RBRACE) {
+            analyzeStatement();
+        }
+        expect(TokenType.RBRACE, "}");
+        scopes.pop();
+    }
+
+    // The body of a while, if or else: a block, or a single statement in a scope of its own.
+    private void analyzeBody() {
+        if (pos >= count || types[pos] == TokenType.RBRACE) {
+            error(Math.min(pos, count - 1), "Expected a statement");
+            return;
+        }
+        if (types[pos] == TokenType.LBRACE) {
+            analyzeBlock();
+            return;
+        }
+        scopes.push(new HashMap<>());
+        analyzeStatement();
+        scopes.pop();
+    }
+
+    // type name [= expr]
+    private void analyzeDeclaration(boolean global) {
+        String type = values[pos++];
+        if (pos >= count || types[pos] != TokenType.IDENTIFIER) {
+            error(pos - 1, "Expected an identifier after '" + type + "'");
+            return;
+        }
+        int nameIndex = pos++;
+        String name = values[nameIndex];
+        if (scopes.peek().containsKey(name)) {
+            error(nameIndex, "'" + name + "' is already declared in this scope");
+        }
+        int slot = ir == null ? -1 : ir.allocateSlot(type);
+        scopes.peek().put(name, new Binding(type, nameIndex, slot));
+        declarationOf[nameIndex] = nameIndex;
+        Declaration declaration = declare(nameIndex, type,
+                scopes.size() == 1 ? "global" : functionName == null ? "local" : functionName);
+        if (ir != null && scopes.size() == 1) {
+            ir.declareGlobal(name, type, slot);
+        }
+        if (pos >= count || types[pos] != TokenType.ASSIGN) {
+            if (ir != null) {
+                ir.emitDefault(type);
+                ir.emitStore(type, slot);
+            }
+        } else {
+            pos++;
+            Value init = analyzeExpression();
+            checkAssignable(type, init, nameIndex, name);
+            if (ir != null) {
+                ir.emitConversion(type, init.type);
+                ir.emitStore(type, slot);
+            }
+            Object constant = null;
+            if (init.constant != null && isAssignable(type, init.type)) {
+                constant = coerce(type, init.constant);
+                if (global && !assignedNames.contains(name)) {
+                    globalConstants.put(name, constant);
+                }
+            }
+            declaration.value = constant == null ? null : format(constant);
+            // The lexer only records a leading literal; replace it with the folded value, if any.
+            SymbolTable.SymbolEntry entry = symbolTable.getSymbol(name);
+            if (entry != null && entry.dataType.equals(type)) {
+                entry.value = declaration.value;
+            }
+        }
+    }
+
+    // function [type] name ( ) { ... }
+    private void analyzeFunction() {
+        String outerReturnType = functionReturnType;
+        String outerName = functionName;
+        int skip = jump(IRProgram.JMP);
+        int start = ir == null ? -1 : ir.position();
+        String name = null;
+        pos++;
+        functionReturnType = null;
+        if (pos < count && types[pos] == TokenType.KEYWORD) {
+            if (values[pos].equals("int") || isDataType(values[pos])) {
+                functionReturnType = values[pos].equals("int") ? "integer" : values[pos];
+            } else {
+                error(pos, "'" + values[pos] + "' is not a return type");
+            }
+            pos++;
+        }
+        if (pos < count && types[pos] == TokenType.IDENTIFIER) {
+            name = values[pos];
+            scopes.getLast().put(name, new Binding("function", pos, -1));
+            declarationOf[pos] = pos;
+            declare(pos, "function", "global");
+            pos++;
+        } else {
+            error(pos - 1, "Expected a function name");
+        }
+        expect(TokenType.LPAREN, "(");
+        expect(TokenType.RPAREN, ")");
+        functionName = name;
+        functionDepth++;
+        if (pos < count && types[pos] == TokenType.LBRACE) {
+            analyzeBlock();
+        } else {
+            error(Math.min(pos, count - 1), "Expected '{'");
+        }
+        if (ir != null) {
+            ir.emit(IRProgram.RET);
+            patchHere(skip);
+            if ("main".equals(name)) {
+                ir.setMain(start, functionReturnType);
+            }
+        }
+        functionDepth--;
+        functionReturnType = outerReturnType;
+        functionName = outerName;
+    }
+
+    // while ( expr ) body
+    private void analyzeWhile() {
+        int loop = ir == null ? -1 : ir.position();
+        int exit = analyzeCondition("while");
+        analyzeBody();
+        if (ir != null) {
+            ir.emit(IRProgram.JMP, loop);
+        }
+        patchHere(exit);
+    }
+
+    // if ( expr ) body [else body]
+    private void analyzeIf() {
+        int otherwise = analyzeCondition("if");
+        analyzeBody();
+        if (isKeyword(pos, "else")) {
+            pos++;
+            int end = jump(IRProgram.JMP);
+            patchHere(otherwise);
+            analyzeBody();
+            patchHere(end);
+        } else {
+            patchHere(otherwise);
+        }
+    }
+
+    // ( expr ) after 'while' or 'if'; returns the JMPF to patch with the false branch
+    private int analyzeCondition(String keyword) {
+        int start = pos++;
+        expect(TokenType.LPAREN, "(");
+        Value condition = analyzeExpression();
+        expect(TokenType.RPAREN, ")");
+        if (!condition.type.equals("boolean") && !condition.type.equals(ERROR_TYPE)) {
+            error(start, "Condition of '" + keyword + "' must be boolean, found " + condition.type);
+        }
+        return jump(IRProgram.JMPF);
+    }
+
+    // return [expr] -- the expression, if any, starts on the same line
+    private void analyzeReturn() {
+        int start = pos++;
+        boolean hasValue = pos < count && startsExpression(pos)
+                && lineIndex.lineOf(offsets[pos]) == lineIndex.lineOf(offsets[start]);
+        if (functionDepth == 0) {
+            error(start, "'return' outside of a function");
+        }
+        if (!hasValue) {
+            if (ir != null) {
+                ir.emit(IRProgram.RET);
+            }
+            return;
+        }
+        Value result = analyzeExpression();
+        if (functionDepth > 0 && functionReturnType == null) {
+            error(start, "'return' with a value in a function without a return type");
+        } else if (functionReturnType != null) {
+            checkAssignable(functionReturnType, result, start, "the return value");
+            if (ir != null) {
+                ir.emitConversion(functionReturnType, result.type);
+                ir.emitReturnValue(functionReturnType);
+            }
+        }
+    }
+
+    // name = expr
+    private void analyzeAssignment() {
+        int nameIndex = pos;
+        Binding target = resolve(nameIndex);
+        pos += 2;
+        Value value = analyzeExpression();
+        if (target != null) {
+            checkAssignable(target.type, value, nameIndex, values[nameIndex]);
+            if (ir != null) {
+                ir.emitConversion(target.type, value.type);
+                ir.emitStore(target.type, target.slot);
+            }
+        }
+    }
+
+    // Precedence, lowest first: < >, then + -, then * / %, then unary -, then ^ (right
+    // associative), so -2^2 is -(2^2) and 2^-1 is 2^(-1).
+    private Value analyzeExpression() {
+        Value left = analyzeAdditive();
+        while (isOperator(pos, "<") || isOperator(pos, ">")) {
+            int opIndex = pos++;
+            left = binary(opIndex, left, analyzeAdditive());
+        }
+        return left;
+    }
+
+    private Value analyzeAdditive() {
+        Value left = analyzeMultiplicative();
+        while (isOperator(pos, "+") || isOperator(pos, "-")) {
+            int opIndex = pos++;
+            left = binary(opIndex, left, analyzeMultiplicative());
+        }
+        return left;
+    }
+
+    private Value analyzeMultiplicative() {
+        Value left = analyzeUnary();
+        while (isOperator(pos, "*") || isOperator(pos, "/") || isOperator(pos, "%")) {
+            int opIndex = pos++;
+            left = binary(opIndex, left, analyzeUnary());
+        }
+        return left;
+    }
+
+    private Value analyzeUnary() {
+        if (isOperator(pos, "-")) {
+            int opIndex = pos++;
+            Value operand = analyzeUnary();
+            if (ir != null) {
+                ir.emitNegate(operand.type);
+            }
+            if (!isNumeric(operand.type)) {
+                if (!operand.type.equals(ERROR_TYPE)) {
+                    error(opIndex, "Operator '-' cannot be applied to " + operand.type);
+                }
+                return new Value(ERROR_TYPE, null);
+            }
+            Object constant = null;
+            if (operand.constant instanceof Long) {
+                if ((Long) operand.constant == Long.MIN_VALUE) {
+                    error(opIndex, "Integer overflow in constant expression");
+                } else {
+                    constant = -(Long) operand.constant;
+                }
+            } else if (operand.constant instanceof Double) {
+                constant = -(Double) operand.constant;
+            }
+            return new Value(operand.type, constant);
+        }
+        return analyzePower();
+    }
+
+    private Value analyzePower() {
+        Value base = analyzePrimary();
+        if (isOperator(pos, "^")) {
+            int opIndex = pos++;
+            return binary(opIndex, base, analyzeUnary());
+        }
+        return base;
+    }
+
+    private Value analyzePrimary() {
+        if (pos >= count) {
+            error(count - 1, "Expected an expression");
+            return new Value(ERROR_TYPE, null);
+        }
+        int index = pos++;
+        String value = values[index];
+        switch (types[index]) {
+            case INTEGER:
+                try {
+                    return literal("integer", Long.parseLong(value));
+                } catch (NumberFormatException e) {
+                    error(index, "Integer literal out of range: " + value);
+                    return literal("integer", null);
+                }
+            case DECIMAL:
+                return literal("float", Double.parseDouble(value));
+            case BOOLEAN:
+                return literal("boolean", Boolean.parseBoolean(value));
+            case CHAR:
+                return literal("char", value.charAt(1));
+            case STRING:
+                return literal("string", value.substring(1, value.length() - 1));
+            case IDENTIFIER: {
+                Binding binding = resolve(index);
+                if (binding == null) {
+                    return new Value(ERROR_TYPE, null);
+                }
+                if (ir != null) {
+                    ir.emitLoad(binding.type, binding.slot);
+                }
+                return new Value(binding.type, globalConstantFor(value));
+            }
+            case LPAREN: {
+                Value inner = analyzeExpression();
+                expect(TokenType.RPAREN, ")");
+                return inner;
+            }
+            default:
+                error(index, "Unexpected token '" + value + "' in expression");
+                return new Value(ERROR_TYPE, null);
+        }
+    }
+
+    private Value literal(String type, Object constant) {
+        if (ir != null) {
+            ir.emitConstant(constant);
+        }
+        return new Value(type, constant);
+    }
+
+    // Type-checks a binary operator and folds it when both operands are constant.
+    private Value binary(int opIndex, Value left, Value right) {
+        String op = values[opIndex];
+        if (ir != null) {
+            ir.emitBinary(op, left.type, right.type);
+        }
+        if (left.type.equals(ERROR_TYPE) || right.type.equals(ERROR_TYPE)) {
+            return new Value(ERROR_TYPE, null);
+        }
+        String resultType;
+        if (op.equals("<") || op.equals(">")) {
+            boolean comparable = (isNumeric(left.type) && isNumeric(right.type))
+                    || (left.type.equals("char") && right.type.equals("char"));
+            resultType = comparable ? "boolean" : null;
+        } else if (isNumeric(left.type) && isNumeric(right.type)) {
+            resultType = left.type.equals("float") || right.type.equals("float") ? "float" : "integer";
+        } else if (op.equals("+") && left.type.equals("string") && right.type.equals("string")) {
+            resultType = "string";
+        } else {
+            resultType = null;
+        }
+        if (resultType == null) {
+            error(opIndex, "Operator '" + op + "' cannot be applied to " + left.type + " and " + right.type);
+            return new Value(ERROR_TYPE, null);
+        }
+        Object constant = null;
+        if (left.constant != null && right.constant != null) {
+            constant = fold(opIndex, op, left, right);
+            if (constant != null) {
+                foldedExpressions++;
+            }
+        }
+        return new Value(resultType, constant);
+    }
+
+    private Object fold(int opIndex, String op, Value left, Value right) {
+        if (left.constant instanceof String) {
+            return (String) left.constant + right.constant;
+        }
+        if (left.constant instanceof Character) {
+            char a = (Character) left.constant;
+            char b = (Character) right.constant;
+            return op.equals("<") ? a < b : a > b;
+        }
+        if (left.constant instanceof Long && right.constant instanceof Long) {
+            long a = (Long) left.constant;
+            long b = (Long) right.constant;
+            try {
+                switch (op) {
+                    case "+": return Math.addExact(a, b);
+                    case "-": return Math.subtractExact(a, b);
+                    case "*": return Math.multiplyExact(a, b);
+                    case "<": return a < b;
+                    case ">": return a > b;
+                    case "/":
+                    case "%":
+                        if (b == 0) {
+                            error(opIndex, "Division by zero in constant expression");
+                            return null;
+                        }
+                        return op.equals("/") ? a / b : a % b;
+                    case "^":
+                        if (b < 0) {
+                            return null; // not representable as an integer
+                        }
+                        long result = 1;
+                        long base = a;
+                        for (long exp = b; exp > 0; exp >>= 1) {
+                            if ((exp & 1) != 0) {
+                                result = Math.multiplyExact(result, base);
+                            }
+                            // Square only while a higher bit still needs it
+                            if (exp > 1) {
+                                base = Math.multiplyExact(base, base);
+                            }
+                        }
+                        return result;
+                    default:
+                        return null;
+                }
+            } catch (ArithmeticException e) {
+                error(opIndex, "Integer overflow in constant expression");
+                return null;
+            }
+        }
+        double a = ((Number) left.constant).doubleValue();
+        double b = ((Number) right.constant).doubleValue();
+        switch (op) {
+            case "+": return a + b;
+            case "-": return a - b;
+            case "*": return a * b;
+            case "/": return a / b;
+            case "%": return a % b;
+            case "^": return Math.pow(a, b);
+            case "<": return a < b;
+            case ">": return a > b;
+            default: return null;
+        }
+    }
+
+    private Declaration declare(int index, String type, String scope) {
+        Declaration declaration = new Declaration(values[index], type, scope, declaredNames.add(values[index]));
+        declarations.put(index, declaration);
+        return declaration;
+    }
+
+    // Looks a name up from the innermost scope outwards; reports and returns null if undeclared.
+    private Binding resolve(int index) {
+        String name = values[index];
+        for (Map<String, Binding> scope : scopes) {
+            Binding binding = scope.get(name);
+            if (binding != null) {
+                declarationOf[index] = binding.index;
+                return binding;
+            }
+        }
+        error(index, "Undeclared identifier '" + name + "'");
+        return null;
+    }
+
+    // A global constant's value, unless a local declaration shadows it.
+    private Object globalConstantFor(String name) {
+        for (Map<String, Binding> scope : scopes) {
+            if (scope.containsKey(name)) {
+                return scope == scopes.getLast() ? globalConstants.get(name) : null;
+            }
+        }
+        return null;
+    }
+
+    private void checkAssignable(String target, Value value, int index, String what) {
+        if (!value.type.equals(ERROR_TYPE) && !isAssignable(target, value.type)) {
+            error(index, "Type mismatch: cannot assign " + value.type + " to " + what + " of type " + target);
+        }
+    }
+
+    // Same type, or the implicit integer -> float widening.
+    private static boolean isAssignable(String target, String source) {
+        return target.equals(source) || (target.equals("float") && source.equals("integer"));
+    }
+
+    private static Object coerce(String type, Object constant) {
+        if (type.equals("float") && constant instanceof Long) {
+            return ((Long) constant).doubleValue();
+        }
+        return constant;
+    }
+
+    private static String format(Object constant) {
+        if (constant instanceof Character) {
+            return "'" + constant + "'";
+        }
+        if (constant instanceof String) {
+            return "\"" + constant + "\"";
+        }
+        return constant.toString();
+    }
+
+    private boolean startsExpression(int index) {
+        switch (types[index]) {
+            case IDENTIFIER:
+            case INTEGER:
+            case DECIMAL:
+            case BOOLEAN:
+            case CHAR:
+            case STRING:
+            case LPAREN:
+                return true;
+            default:
+                return isOperator(index, "-");
+        }
+    }
+
+    // Emits a jump with a placeholder target when generating code; returns its operand position.
+    private int jump(int op) {
+        return ir == null ? -1 : ir.emitJump(op);
+    }
+
+    // Points a jump emitted by jump() at the next instruction.
+    private void patchHere(int operandPosition) {
+        if (ir != null) {
+            ir.patch(operandPosition, ir.position());
+        }
+    }
+
+    private boolean isKeyword(int index, String keyword) {
+        return index < count && types[index] == TokenType.KEYWORD && values[index].equals(keyword);
+    }
+
+    private boolean isOperator(int index, String op) {
+        return index < count && types[index] == TokenType.OPERATOR && values[index].equals(op);
+    }
+
+    private void expect(TokenType type, String text) {
+        if (pos < count && types[pos] == type) {
+            pos++;
+        } else {
+            error(Math.min(pos, count - 1), "Expected '" + text + "'");
+        }
+    }
+
+    private static boolean isNumeric(String type) {
+        return type.equals("integer") || type.equals("float");
+    }
+
+    private static boolean isDataType(String value) {
+        return value.equals("integer") || value.equals("float") || value.equals("char")
+                || value.equals("boolean") || value.equals("string");
+    }
+
+    private void error(int index, String message) {
+        errorCount++;
+        if (index < 0) {
+            errorHandler.addError("Semantic error: " + message);
+            return;
+        }
+        int offset = offsets[index];
+        errorHandler.addError("Semantic error at line " + lineIndex.lineOf(offset) + ", column "
+                + lineIndex.columnOf(offset) + ": " + message, offset);
+    }
+}
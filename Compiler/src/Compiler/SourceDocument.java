@@ -0,0 +1,263 @@
+package Compiler;
+
+import java.util.*;
+
+// An open source file in the language server: its text, tokens and, on demand, the
+// symbol table, diagnostics and name resolution of the current text.
+//
+// Edits re-lex only the affected region. Scanning restarts at the start of the edited
+// line (or earlier, at a token that spans it), because no token's scan reads past a
+// newline except a multi-line comment, which is re-scanned from its start when it spans
+// the line, and an unclosed comment opener, which scans to the end of the file and so
+// forces a restart at the opener. Scanning stops as soon as a new token starts where an
+// old token started after the edit: from there on the text, and so the tokens, are the
+// same, only shifted. The line index is spliced rather than rebuilt, and token lists
+// handed out earlier are never modified: shifted tokens are new objects. Analysis
+// (symbol table and semantic checks) reruns over the whole token list, lazily, the
+// first time it is needed after an edit.
+public class SourceDocument {
+    private final Map<TokenType, DFA> tokenDFAs;
+    private String text;
+    private int version;
+    private LineIndex lineIndex;
+    private List<Token> tokens;
+    private List<Integer> unrecognized; // sorted offsets of characters no token matched
+    private List<Integer> openers;      // sorted offsets of "/*" lexed as two operators
+
+    // Analysis of the current text; null when an edit made it stale.
+    private SymbolTable symbolTable;
+    private ErrorHandler errorHandler;
+    private SemanticAnalyzer analyzer;
+
+    public SourceDocument(String text, int version, Map<TokenType, DFA> tokenDFAs) {
+        this.tokenDFAs = tokenDFAs;
+        this.text = text;
+        this.version = version;
+        Lexer lexer = new Lexer(text, tokenDFAs);
+        List<Token> lexed = new ArrayList<>();
+        lexer.lexFrom(0, lexed::add);
+        this.tokens = lexed;
+        this.unrecognized = new ArrayList<>(lexer.getErrorHandler().getErrorOffsets());
+        this.openers = findOpeners(lexed, 0, lexed.size());
+        this.lineIndex = lexer.getLineIndex();
+    }
+
+    // Replaces text[start, end) with replacement and re-lexes the affected tokens.
+    public void edit(int start, int end, String replacement, int newVersion) {
+        if (start < 0 || start > end || end > text.length()) {
+            throw new RuntimeException("Edit range " + start + ".." + end + " is outside the document");
+        }
+        int delta = replacement.length() - (end - start);
+        int restart = restartOffset(start);
+        int firstReplaced = firstTokenAtOrAfter(restart);
+
+        text = text.substring(0, start) + replacement + text.substring(end);
+        version = newVersion;
+        LineIndex editedLines = lineIndex.edited(start, end, replacement);
+        Lexer lexer = new Lexer(text, tokenDFAs, editedLines);
+        int editEnd = start + replacement.length();
+        List<Token> fresh = new ArrayList<>();
+        int[] resync = {tokens.size()};
+        // The scalar scanner: the word-at-a-time one copies the whole text up front
+        lexer.lexFrom(restart, new CharRunScanner(text, false), token -> {
+            if (token.offset >= editEnd) {
+                int old = tokenStartingAt(token.offset - delta);
+                if (old >= 0 && tokens.get(old).offset >= end) {
+                    resync[0] = old;
+                    return false;
+                }
+            }
+            fresh.add(token);
+            return true;
+        });
+
+        List<Token> edited = new ArrayList<>(firstReplaced + fresh.size() + tokens.size() - resync[0]);
+        edited.addAll(tokens.subList(0, firstReplaced));
+        edited.addAll(fresh);
+        for (Token token : tokens.subList(resync[0], tokens.size())) {
+            edited.add(delta == 0 ? token : new Token(token.type, token.value, token.offset + delta));
+        }
+        int resyncOffset = resync[0] < tokens.size() ? tokens.get(resync[0]).offset : Integer.MAX_VALUE;
+        int freshEnd = firstReplaced + fresh.size();
+        tokens = edited;
+        unrecognized = splice(unrecognized, restart, lexer.getErrorHandler().getErrorOffsets(), resyncOffset, delta);
+        // A "/" left of the restart point may now be followed by a fresh "*"
+        int from = Math.max(firstReplaced - 1, 0);
+        openers = splice(openers, restart, findOpeners(edited, from, freshEnd), resyncOffset, delta);
+        lineIndex = editedLines;
+        symbolTable = null;
+        errorHandler = null;
+        analyzer = null;
+    }
+
+    // Earliest offset whose scan may have read the character at start.
+    private int restartOffset(int start) {
+        int restart = lineIndex.lineStart(lineIndex.lineOf(start));
+        int covering = firstTokenEndingAfter(restart);
+        if (covering < tokens.size() && tokens.get(covering).offset < restart) {
+            restart = tokens.get(covering).offset;
+        }
+        // "/*" lexed as two operators: the comment scan from there ran to the end of input
+        if (!openers.isEmpty() && openers.get(0) < restart) {
+            return openers.get(0);
+        }
+        return restart;
+    }
+
+    // Offsets of the "/" of every "/" "*" operator pair whose "/" is in tokens[from, to).
+    private static List<Integer> findOpeners(List<Token> tokens, int from, int to) {
+        List<Integer> found = new ArrayList<>();
+        for (int i = from; i < to && i + 1 < tokens.size(); i++) {
+            Token token = tokens.get(i);
+            if (token.type == TokenType.OPERATOR && token.value.equals("/")
+                    && tokens.get(i + 1).offset == token.offset + 1 && tokens.get(i + 1).value.equals("*")) {
+                found.add(token.offset);
+            }
+        }
+        return found;
+    }
+
+    // Sorted offsets after an edit: the old ones before restart, the re-lexed ones, and
+    // the old ones from the old resync offset on, shifted by delta.
+    private static List<Integer> splice(List<Integer> old, int restart, List<Integer> fresh,
+                                        int resyncOffset, int delta) {
+        List<Integer> spliced = new ArrayList<>();
+        for (int offset : old) {
+            if (offset < restart) {
+                spliced.add(offset);
+            }
+        }
+        spliced.addAll(fresh);
+        for (int offset : old) {
+            if (offset >= resyncOffset) {
+                spliced.add(offset + delta);
+            }
+        }
+        return spliced;
+    }
+
+    // Runs the symbol table and semantic analysis if an edit made them stale.
+    public void analyze() {
+        if (analyzer != null) {
+            return;
+        }
+        Lexer lexer = new Lexer(text, tokenDFAs, lineIndex);
+        for (int offset : unrecognized) {
+            lexer.reportUnrecognized(offset);
+        }
+        for (Token token : tokens) {
+            lexer.acceptForSymbolTable(token);
+        }
+        lexer.finishSymbolTable();
+        SemanticAnalyzer semantic = new SemanticAnalyzer(tokens, lexer.getSymbolTable(),
+                                                         lexer.getErrorHandler(), lineIndex);
+        semantic.analyze();
+        symbolTable = lexer.getSymbolTable();
+        errorHandler = lexer.getErrorHandler();
+        analyzer = semantic;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public LineIndex getLineIndex() {
+        return lineIndex;
+    }
+
+    public List<Token> getTokens() {
+        return tokens;
+    }
+
+    public SymbolTable getSymbolTable() {
+        analyze();
+        return symbolTable;
+    }
+
+    public ErrorHandler getErrorHandler() {
+        analyze();
+        return errorHandler;
+    }
+
+    // Offset of the declaration the identifier at useOffset resolves to, or -1.
+    public int declarationOffset(int useOffset) {
+        analyze();
+        return analyzer.declarationOffset(useOffset);
+    }
+
+    // The declaration whose identifier starts at offset, or null.
+    public SemanticAnalyzer.Declaration declarationAt(int offset) {
+        analyze();
+        return analyzer.declarationAt(offset);
+    }
+
+    // Offset of a 0-based line and character (UTF-16 units, like Java strings), clamped
+    // to the end of the line and of the document.
+    public int offsetAt(int line, int character) {
+        if (line >= lineIndex.getLineCount()) {
+            return text.length();
+        }
+        int lineStart = lineIndex.lineStart(line + 1);
+        return Math.min(lineStart + character, lineEnd(line));
+    }
+
+    // Offset of the end of a 0-based line, before its newline.
+    public int lineEnd(int line) {
+        return line + 1 < lineIndex.getLineCount() ? lineIndex.lineStart(line + 2) - 1 : text.length();
+    }
+
+    // Index of the token containing offset, or ending right at it; -1 if there is none.
+    public int tokenIndexAt(int offset) {
+        int index = firstTokenEndingAfter(offset);
+        if (index < tokens.size() && tokens.get(index).offset <= offset) {
+            return index;
+        }
+        if (index > 0 && end(tokens.get(index - 1)) == offset) {
+            return index - 1;
+        }
+        return -1;
+    }
+
+    // Index of the first token that ends after offset (the token containing it, if any).
+    int firstTokenEndingAfter(int offset) {
+        int low = 0;
+        int high = tokens.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (end(tokens.get(mid)) <= offset) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // Index of the first token starting at or after offset.
+    int firstTokenAtOrAfter(int offset) {
+        int low = 0;
+        int high = tokens.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (tokens.get(mid).offset < offset) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int tokenStartingAt(int offset) {
+        int index = firstTokenAtOrAfter(offset);
+        return index < tokens.size() && tokens.get(index).offset == offset ? index : -1;
+    }
+
+    static int end(Token token) {
+        return token.offset + token.value.length();
+    }
+}
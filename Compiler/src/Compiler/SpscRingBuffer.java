@@ -0,0 +1,103 @@
+package Compiler;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// Bounded lock-free queue for exactly one producer thread and one consumer thread.
+// The producer only writes tail and the consumer only writes head; each side caches the
+// other's index and re-reads it only when the ring looks full (or empty). put() and
+// take() back off from spinning to yielding to parking, so a full ring throttles the
+// producer and memory stays bounded.
+public class SpscRingBuffer<T> {
+    private final Object[] slots;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong(); // next slot to read
+    private final AtomicLong tail = new AtomicLong(); // next slot to write
+    private long cachedHead = 0; // producer's view of head
+    private long cachedTail = 0; // consumer's view of tail
+    private volatile boolean closed = false;
+    private volatile boolean aborted = false;
+
+    // Capacity is rounded up to a power of two.
+    public SpscRingBuffer(int capacity) {
+        int size = capacity <= 2 ? 2 : Integer.highestOneBit(capacity - 1) << 1;
+        this.slots = new Object[size];
+        this.mask = size - 1;
+    }
+
+    // Producer: adds an item if there is room.
+    public boolean offer(T item) {
+        long t = tail.get();
+        if (t - cachedHead == slots.length) {
+            cachedHead = head.get();
+            if (t - cachedHead == slots.length) {
+                return false;
+            }
+        }
+        slots[(int) t & mask] = item;
+        tail.lazySet(t + 1); // release: the slot write is visible before the new tail
+        return true;
+    }
+
+    // Consumer: removes the next item, or returns null if the ring is empty.
+    @SuppressWarnings("unchecked")
+    public T poll() {
+        long h = head.get();
+        if (h == cachedTail) {
+            cachedTail = tail.get();
+            if (h == cachedTail) {
+                return null;
+            }
+        }
+        int index = (int) h & mask;
+        T item = (T) slots[index];
+        slots[index] = null;
+        head.lazySet(h + 1);
+        return item;
+    }
+
+    // Producer: waits for room, then adds the item.
+    public void put(T item) {
+        for (int idle = 0; !offer(item); idle++) {
+            backOff(idle);
+        }
+    }
+
+    // Consumer: waits for the next item; returns null once the ring is closed and drained.
+    public T take() {
+        for (int idle = 0; ; idle++) {
+            T item = poll();
+            if (item != null) {
+                return item;
+            }
+            if (closed) {
+                // Anything published before close() is visible now.
+                return poll();
+            }
+            backOff(idle);
+        }
+    }
+
+    // Producer: no more items will be added.
+    public void close() {
+        closed = true;
+    }
+
+    // Either side: gives up, waking the other side with an exception.
+    public void abort() {
+        aborted = true;
+    }
+
+    private void backOff(int idle) {
+        if (aborted) {
+            throw new IllegalStateException("Pipeline aborted");
+        }
+        if (idle < 100) {
+            Thread.onSpinWait();
+        } else if (idle < 200) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(50_000);
+        }
+    }
+}
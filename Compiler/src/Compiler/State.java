@@ -7,17 +7,18 @@ public class State {
     private String name;
     private boolean isAccepting;
     private Map<Character, Set<State>> transitions;
-    private static int stateCounter = 0;
 
-    public State() {
-        this.id = stateCounter++;
+    // Ids are assigned by whoever builds the automaton, densely from 0, so that they
+    // depend only on that automaton and not on what was constructed before it.
+    public State(int id) {
+        this.id = id;
         this.name = "q" + id;
         this.isAccepting = false;
         this.transitions = new HashMap<>();
     }
 
-    public State(String name) {
-        this.id = stateCounter++;
+    public State(int id, String name) {
+        this.id = id;
         this.name = name;
         this.isAccepting = false;
         this.transitions = new HashMap<>();
@@ -1,5 +1,6 @@
 package Compiler;
 
+import java.io.PrintWriter;
 import java.util.*;
 /////////
 public class SymbolTable {
@@ -40,20 +41,57 @@ public class SymbolTable {
         return table.containsKey(lexeme);
     }
     
+    public SymbolEntry getSymbol(String lexeme) {
+        return table.get(lexeme);
+    }
+    
+    public Collection<SymbolEntry> getEntries() {
+        return table.values();
+    }
+    
+    // An estimate of the backing HashMap's chain shape, not a measurement (its buckets are
+    // not observable): {buckets, longest chain, total probes to look up every entry once}.
+    // It replays HashMap's default sizing (16 buckets, doubled past a 0.75 load factor, no
+    // removals) and hash spreading over the current names, and counts every chain as a
+    // list, although HashMap turns chains longer than 8 into trees once it has 64 buckets.
+    public long[] estimateChainStats() {
+        int buckets = 16;
+        while (table.size() > buckets * 3 / 4) {
+            buckets <<= 1;
+        }
+        int[] chains = new int[buckets];
+        long longest = 0;
+        long probes = 0;
+        for (String name : table.keySet()) {
+            int h = name.hashCode();
+            int bucket = (h ^ (h >>> 16)) & (buckets - 1);
+            chains[bucket]++;
+            probes += chains[bucket];
+            longest = Math.max(longest, chains[bucket]);
+        }
+        return new long[] {buckets, longest, probes};
+    }
+    
     public int getNextMemoryLocation() {
         return memoryCounter++;
     }
     
     public void displayTable() {
-        System.out.println("----------------------------------------------------------------------------");
-        System.out.printf("| %-15s | %-10s | %-10s | %-15s | %-15s |\n", 
-                          "Identifier", "Data Type", "Scope", "Memory Location", "Value");
-        System.out.println("----------------------------------------------------------------------------");
+        PrintWriter out = new PrintWriter(System.out);
+        displayTable(out);
+        out.flush();
+    }
+    
+    public void displayTable(PrintWriter out) {
+        out.println("----------------------------------------------------------------------------");
+        out.printf("| %-15s | %-10s | %-10s | %-15s | %-15s |\n", 
+                   "Identifier", "Data Type", "Scope", "Memory Location", "Value");
+        out.println("----------------------------------------------------------------------------");
         for (SymbolEntry entry : table.values()) {
-            System.out.printf("| %-15s | %-10s | %-10s | %-15d | %-15s |\n",
-                              entry.identifierName, entry.dataType, entry.scope, entry.memoryLocation, 
-                              entry.value == null ? "" : entry.value);
+            out.printf("| %-15s | %-10s | %-10s | %-15d | %-15s |\n",
+                       entry.identifierName, entry.dataType, entry.scope, entry.memoryLocation, 
+                       entry.value == null ? "" : entry.value);
         }
-        System.out.println("----------------------------------------------------------------------------");
+        out.println("----------------------------------------------------------------------------");
     }
 }
\ No newline at end of file
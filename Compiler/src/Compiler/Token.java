@@ -3,11 +3,11 @@ package Compiler;
 public class Token {
     public TokenType type;
     public String value;
-    public int lineNumber;
-    
-    public Token(TokenType type, String value, int lineNumber) {
+    public int offset; // position in the source; see LineIndex for line/column
+
+    public Token(TokenType type, String value, int offset) {
         this.type = type;
         this.value = value;
-        this.lineNumber = lineNumber;
+        this.offset = offset;
     }
 }
\ No newline at end of file
@@ -0,0 +1,55 @@
+package Compiler;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+// Compact binary token stream, written by Main --tokens=<file> in place of the text
+// listing. Layout: magic, format version, token count, then per token the type ordinal
+// (one byte), the source offset and the length-prefixed UTF-8 value.
+public class TokenDump {
+    private static final int MAGIC = 0x4D53_544B; // "MSTK"
+    private static final int FORMAT_VERSION = 1;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    public static void write(Path path, List<Token> tokens) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(path), BUFFER_SIZE))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(tokens.size());
+            for (Token token : tokens) {
+                byte[] value = token.value.getBytes(StandardCharsets.UTF_8);
+                out.writeByte(token.type.ordinal());
+                out.writeInt(token.offset);
+                out.writeInt(value.length);
+                out.write(value);
+            }
+        }
+    }
+
+    public static List<Token> read(Path path) throws IOException {
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(path), BUFFER_SIZE))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                throw new IOException("Not a token dump, or an unsupported format version: " + path);
+            }
+            TokenType[] tokenTypes = TokenType.values();
+            int count = in.readInt();
+            List<Token> tokens = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                int ordinal = in.readUnsignedByte();
+                if (ordinal >= tokenTypes.length) {
+                    throw new IOException("Unknown token type " + ordinal);
+                }
+                int offset = in.readInt();
+                byte[] value = new byte[in.readInt()];
+                in.readFully(value);
+                tokens.add(new Token(tokenTypes[ordinal], new String(value, StandardCharsets.UTF_8), offset));
+            }
+            return tokens;
+        }
+    }
+}
@@ -7,4 +7,5 @@
 module Compiler {
 	requires junit;
 	requires org.junit.jupiter.api;
+	requires jdk.jfr;
 }
\ No newline at end of file